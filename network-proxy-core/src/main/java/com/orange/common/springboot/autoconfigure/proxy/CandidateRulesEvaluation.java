@@ -0,0 +1,234 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.io.Closeable;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates a candidate rule set against the active one, on a sample of live selections (see
+ * {@link MultiProxySelector.Builder#candidate(List, double, int)})
+ * <p>
+ * Sampled selections are queued to a single background thread (the selecting thread only draws a random number, and
+ * enqueues the host when sampled): there, the hostname is matched against both rule sets, bypassing the selection
+ * caches, and each evaluation is timed. When the queue is full, samples are dropped (and counted) rather than slowing
+ * down selections.
+ * <p>
+ * Decisions are compared on the main proxy of the matched server ({@link Proxy#NO_PROXY} when no server matches):
+ * alternates, fallbacks and health don't count. The first {@value #MAX_REPORTED_DIFFERENCES} differing hosts are
+ * kept for the report.
+ */
+public class CandidateRulesEvaluation implements Closeable {
+    /**
+     * Max number of differing hosts kept for the report
+     */
+    static final int MAX_REPORTED_DIFFERENCES = 100;
+
+    /**
+     * A host routed differently by the candidate rules
+     */
+    public static class Difference {
+        private final String protocol;
+        private final String host;
+        private final Proxy active;
+        private final Proxy candidate;
+
+        Difference(String protocol, String host, Proxy active, Proxy candidate) {
+            this.protocol = protocol;
+            this.host = host;
+            this.active = active;
+            this.candidate = candidate;
+        }
+
+        public String getProtocol() {
+            return protocol;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Returns the main proxy selected by the active rules
+         */
+        public Proxy getActive() {
+            return active;
+        }
+
+        /**
+         * Returns the main proxy selected by the candidate rules
+         */
+        public Proxy getCandidate() {
+            return candidate;
+        }
+
+        @Override
+        public String toString() {
+            return protocol + "://" + host + ": " + active + " -> " + candidate;
+        }
+    }
+
+    private final MultiProxySelector active;
+    private final MultiProxySelector candidate;
+    private final double sampleRate;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder differences = new LongAdder();
+    private final LongAdder agreements = new LongAdder();
+    private final LongAdder activeNanos = new LongAdder();
+    private final LongAdder candidateNanos = new LongAdder();
+    private final Map<MultiProxySelector.SchemeAndHost, Difference> differingHosts = new ConcurrentHashMap<>();
+    /**
+     * Only accessed by the evaluation thread
+     */
+    private boolean candidateFirst;
+
+    CandidateRulesEvaluation(MultiProxySelector active, MultiProxySelector candidate, double sampleRate, int queueCapacity) {
+        this.active = active;
+        this.candidate = candidate;
+        this.sampleRate = sampleRate;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "proxy-candidate-rules");
+            thread.setDaemon(true);
+            return thread;
+        }, (r, e) -> dropped.increment());
+    }
+
+    /**
+     * Queues a selection for evaluation, with a probability of {@code sampleRate}
+     */
+    void sample(MultiProxySelector.SchemeAndHost key) {
+        if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        sampled.increment();
+        executor.execute(() -> evaluate(key));
+    }
+
+    void evaluate(MultiProxySelector.SchemeAndHost key) {
+        // alternate the evaluation order, so that neither rule set benefits from the other one warming CPU caches
+        candidateFirst = !candidateFirst;
+        long candidateDuration = 0;
+        MultiProxySelector.ProxyEntry candidateEntry = null;
+        if (candidateFirst) {
+            long start = System.nanoTime();
+            candidateEntry = candidate.findEntry(key.protocol, key.host);
+            candidateDuration = System.nanoTime() - start;
+        }
+        long start = System.nanoTime();
+        MultiProxySelector.ProxyEntry activeEntry = active.findEntry(key.protocol, key.host);
+        activeNanos.add(System.nanoTime() - start);
+        if (!candidateFirst) {
+            start = System.nanoTime();
+            candidateEntry = candidate.findEntry(key.protocol, key.host);
+            candidateDuration = System.nanoTime() - start;
+        }
+        candidateNanos.add(candidateDuration);
+
+        Proxy activeProxy = activeEntry.getProxy();
+        Proxy candidateProxy = candidateEntry.getProxy();
+        if (!activeProxy.equals(candidateProxy)) {
+            differences.increment();
+            if (differingHosts.size() < MAX_REPORTED_DIFFERENCES) {
+                differingHosts.putIfAbsent(key, new Difference(key.protocol, key.host, activeProxy, candidateProxy));
+            }
+        } else {
+            agreements.increment();
+        }
+        // last, so that outcomes are counted once an evaluation is
+        evaluated.increment();
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Returns the number of sampled selections (including dropped ones)
+     */
+    public long getSampled() {
+        return sampled.sum();
+    }
+
+    /**
+     * Returns the number of sampled selections dropped because the evaluation queue was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of evaluated selections
+     */
+    public long getEvaluated() {
+        return evaluated.sum();
+    }
+
+    /**
+     * Returns the number of evaluated selections routed differently by the candidate rules
+     */
+    public long getDifferences() {
+        return differences.sum();
+    }
+
+    /**
+     * Returns the number of evaluated selections routed the same way by both rule sets
+     */
+    public long getAgreements() {
+        return agreements.sum();
+    }
+
+    /**
+     * Returns the mean duration (in nanos) of an evaluation of the active rules ({@code NaN} before the first one)
+     */
+    public double getActiveMeanNanos() {
+        long count = evaluated.sum();
+        return count == 0 ? Double.NaN : (double) activeNanos.sum() / count;
+    }
+
+    /**
+     * Returns the mean duration (in nanos) of an evaluation of the candidate rules ({@code NaN} before the first one)
+     */
+    public double getCandidateMeanNanos() {
+        long count = evaluated.sum();
+        return count == 0 ? Double.NaN : (double) candidateNanos.sum() / count;
+    }
+
+    /**
+     * Returns the first differing hosts (at most {@value #MAX_REPORTED_DIFFERENCES})
+     */
+    public List<Difference> getDifferingHosts() {
+        return new ArrayList<>(differingHosts.values());
+    }
+
+    /**
+     * Stops the evaluation (pending samples are discarded)
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "CandidateRulesEvaluation{" +
+                "sampleRate=" + sampleRate +
+                ", sampled=" + getSampled() +
+                ", dropped=" + getDropped() +
+                ", evaluated=" + getEvaluated() +
+                ", differences=" + getDifferences() +
+                ", activeMeanNanos=" + getActiveMeanNanos() +
+                ", candidateMeanNanos=" + getCandidateMeanNanos() +
+                ", differingHosts=" + differingHosts.values() +
+                '}';
+    }
+}
@@ -0,0 +1,233 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Servers rules compiled into a flat decision structure (see {@link MultiProxySelector.Builder#compiledRules(boolean)})
+ * <p>
+ * The host and domain matchers of all the servers are merged into a single trie over reversed hostnames, stored in
+ * flat arrays: one pass over the hostname, from its last character, returns the set of servers having a matching host
+ * or domain. The remaining matchers (wildcards, regular expressions and host list files) are then only evaluated for
+ * the servers still undecided, in configuration order.
+ * <p>
+ * Servers are referenced by their index; {@link #find(String, String)} returns the index of the first matching server.
+ */
+final class CompiledRules {
+    private static final HostnameMatcher[] NO_MATCHERS = new HostnameMatcher[0];
+
+    /**
+     * Edges of node {@code n} are {@code [edgeStart[n], edgeStart[n + 1])}, sorted by character
+     */
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    /**
+     * Servers (bitset) of the host or domain entries ending at each node, only matching at a label boundary
+     * ({@code null} if none)
+     */
+    private final long[][] boundaryMarks;
+    /**
+     * Servers (bitset) of the domain entries (with a leading dot) ending at each node ({@code null} if none)
+     */
+    private final long[][] domainMarks;
+    private final int words;
+
+    private final String[][] protocols;
+    private final boolean[] positive;
+    private final HostnameMatcher[][] residualMatchers;
+
+    private CompiledRules(Node root, int nodeCount, int servers, String[][] protocols, boolean[] positive, HostnameMatcher[][] residualMatchers) {
+        this.words = (servers + 63) >>> 6;
+        this.protocols = protocols;
+        this.positive = positive;
+        this.residualMatchers = residualMatchers;
+
+        // flatten the trie (breadth first: node 0 is the root)
+        edgeStart = new int[nodeCount + 1];
+        boundaryMarks = new long[nodeCount][];
+        domainMarks = new long[nodeCount][];
+        List<Node> nodes = new ArrayList<>(nodeCount);
+        nodes.add(root);
+        root.index = 0;
+        int edges = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            for (Node child : nodes.get(i).children.values()) {
+                child.index = nodes.size();
+                nodes.add(child);
+                edges++;
+            }
+        }
+        edgeChars = new char[edges];
+        edgeTargets = new int[edges];
+        int edge = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            edgeStart[i] = edge;
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                edgeChars[edge] = child.getKey();
+                edgeTargets[edge] = child.getValue().index;
+                edge++;
+            }
+            boundaryMarks[i] = node.boundaryMarks;
+            domainMarks[i] = node.domainMarks;
+        }
+        edgeStart[nodes.size()] = edge;
+    }
+
+    /**
+     * Returns the index of the first server matching the protocol and (canonical) hostname, or {@code -1}
+     */
+    int find(String protocol, String host) {
+        long[] matched = matchHostsAndDomains(host);
+        for (int i = 0; i < positive.length; i++) {
+            if (!contains(protocols[i], protocol)) {
+                continue;
+            }
+            boolean hit = (matched[i >>> 6] & (1L << i)) != 0 || matchesAny(residualMatchers[i], host);
+            // a positive server matches when any of its matchers does, a negative one when none does
+            if (hit == positive[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private long[] matchHostsAndDomains(String host) {
+        long[] matched = new long[words];
+        int node = 0;
+        for (int i = host.length() - 1; ; i--) {
+            // host.substring(i + 1) has been consumed
+            long[] marks = domainMarks[node];
+            if (marks != null) {
+                or(matched, marks);
+            }
+            marks = boundaryMarks[node];
+            if (marks != null && (i < 0 || host.charAt(i) == '.')) {
+                or(matched, marks);
+            }
+            if (i < 0) {
+                return matched;
+            }
+            int from = edgeStart[node];
+            int edge = Arrays.binarySearch(edgeChars, from, edgeStart[node + 1], host.charAt(i));
+            if (edge < 0) {
+                return matched;
+            }
+            node = edgeTargets[edge];
+        }
+    }
+
+    private static void or(long[] target, long[] bits) {
+        for (int w = 0; w < target.length; w++) {
+            target[w] |= bits[w];
+        }
+    }
+
+    private static boolean contains(String[] values, String value) {
+        for (String v : values) {
+            if (v.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAny(HostnameMatcher[] matchers, String host) {
+        for (HostnameMatcher matcher : matchers) {
+            if (matcher.matches(host)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of trie nodes
+     */
+    int size() {
+        return boundaryMarks.length;
+    }
+
+    private static class Node {
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        long[] boundaryMarks;
+        long[] domainMarks;
+        int index;
+    }
+
+    /**
+     * Compiles servers rules, added in order
+     */
+    static class Builder {
+        private final Node root = new Node();
+        private int nodeCount = 1;
+        private final List<String[]> protocols = new ArrayList<>();
+        private final List<Boolean> positive = new ArrayList<>();
+        private final List<HostnameMatcher[]> residualMatchers = new ArrayList<>();
+        private final List<String> entries = new ArrayList<>();
+        private final List<Integer> entryServers = new ArrayList<>();
+
+        /**
+         * Adds a server's rules
+         *
+         * @param protocols protocols the server shall be used for
+         * @param matchers  the server matchers
+         * @param positive  whether {@code matchers} are {@code forHosts} (or {@code notForHosts}) matchers
+         */
+        Builder add(List<String> protocols, List<HostnameMatcher> matchers, boolean positive) {
+            int server = this.positive.size();
+            List<HostnameMatcher> residual = new ArrayList<>();
+            for (HostnameMatcher matcher : matchers) {
+                if (matcher instanceof HostnameMatcher.HostOrDomainMatcher) {
+                    entries.add(((HostnameMatcher.HostOrDomainMatcher) matcher).getHostOrDomain());
+                    entryServers.add(server);
+                } else {
+                    residual.add(matcher);
+                }
+            }
+            this.protocols.add(protocols.toArray(new String[0]));
+            this.positive.add(positive);
+            this.residualMatchers.add(residual.isEmpty() ? NO_MATCHERS : residual.toArray(NO_MATCHERS));
+            return this;
+        }
+
+        CompiledRules build() {
+            int servers = positive.size();
+            int words = (servers + 63) >>> 6;
+            for (int e = 0; e < entries.size(); e++) {
+                String entry = entries.get(e);
+                Node node = root;
+                for (int i = entry.length() - 1; i >= 0; i--) {
+                    Node child = node.children.get(entry.charAt(i));
+                    if (child == null) {
+                        child = new Node();
+                        node.children.put(entry.charAt(i), child);
+                        nodeCount++;
+                    }
+                    node = child;
+                }
+                int server = entryServers.get(e);
+                if (entry.startsWith(".")) {
+                    node.domainMarks = mark(node.domainMarks, words, server);
+                } else {
+                    node.boundaryMarks = mark(node.boundaryMarks, words, server);
+                }
+            }
+            boolean[] positives = new boolean[servers];
+            for (int i = 0; i < servers; i++) {
+                positives[i] = positive.get(i);
+            }
+            return new CompiledRules(root, nodeCount, servers, protocols.toArray(new String[0][]), positives, residualMatchers.toArray(new HostnameMatcher[0][]));
+        }
+
+        private static long[] mark(long[] marks, int words, int server) {
+            long[] bits = marks == null ? new long[words] : marks;
+            bits[server >>> 6] |= 1L << server;
+            return bits;
+        }
+    }
+}
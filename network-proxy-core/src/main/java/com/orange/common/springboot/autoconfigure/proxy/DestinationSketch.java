@@ -0,0 +1,205 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-memory streaming sketch of the destinations selected for a proxy, tracking the heavy hitters (see
+ * {@link MultiProxySelector.Builder#heavyHitters(int, java.time.Duration)})
+ * <p>
+ * A Count-Min sketch ({@value #DEPTH} rows of {@value #WIDTH} counters) estimates the number of selections of every
+ * host, never underestimating it, and overestimating it by at most ~0.3% of the window's selections with 98%
+ * confidence. The hosts with the highest estimates are kept in a top-K table, only scanned when an estimate exceeds
+ * its smallest count. Memory is bounded ({@code 32 KB} plus the top-K entries) whatever the number of hosts.
+ * <p>
+ * Updates are lock-free (atomic increments and compare-and-set), and thus approximate under contention. Counts are
+ * kept per window: when a window ends, its top-K (with rates) is published and the sketch is cleared.
+ */
+public final class DestinationSketch {
+    static final int DEPTH = 4;
+    static final int WIDTH = 1024;
+
+    /**
+     * A destination host and its estimated selections over a window
+     */
+    public static final class Destination {
+        private final String host;
+        private final long hash;
+        private final long count;
+        private final double rate;
+
+        Destination(String host, long hash, long count, double rate) {
+            this.host = host;
+            this.hash = hash;
+            this.count = count;
+            this.rate = rate;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Returns the estimated number of selections (an upper bound)
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the estimated number of selections per second
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        @Override
+        public String toString() {
+            return host + "=" + count + String.format(" (%.2f/s)", rate);
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(DEPTH * WIDTH);
+    private final AtomicReferenceArray<Destination> top;
+    /**
+     * Lower bound of the smallest top-K count ({@code 0} while the table is not full)
+     */
+    private volatile long threshold;
+    private final long windowNanos;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private volatile List<Destination> lastWindow;
+
+    DestinationSketch(int topK, long windowNanos) {
+        this.top = new AtomicReferenceArray<>(topK);
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+     * Counts a selection of {@code host}
+     */
+    void add(String host) {
+        rotateIfEnded();
+        long hash = hash(host);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            // Kirsch-Mitzenmacher: row hashes derived from two halves of a 64-bit hash
+            int column = (h1 + i * h2) & (WIDTH - 1);
+            estimate = Math.min(estimate, counts.incrementAndGet(i * WIDTH + column));
+        }
+        if (estimate > threshold) {
+            offer(host, hash, estimate);
+        }
+    }
+
+    private void offer(String host, long hash, long estimate) {
+        Destination candidate = new Destination(host, hash, estimate, 0);
+        int minSlot = -1;
+        Destination min = null;
+        for (int i = 0; i < top.length(); i++) {
+            Destination current = top.get(i);
+            if (current == null) {
+                if (top.compareAndSet(i, null, candidate)) {
+                    updateThreshold();
+                    return;
+                }
+                current = top.get(i);
+                if (current == null) {
+                    continue;
+                }
+            }
+            if (current.hash == hash && current.host.equals(host)) {
+                if (estimate > current.count) {
+                    top.compareAndSet(i, current, candidate);
+                }
+                return;
+            }
+            if (min == null || current.count < min.count) {
+                min = current;
+                minSlot = i;
+            }
+        }
+        if (min != null && estimate > min.count && top.compareAndSet(minSlot, min, candidate)) {
+            updateThreshold();
+        }
+    }
+
+    private void updateThreshold() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < top.length(); i++) {
+            Destination current = top.get(i);
+            if (current == null) {
+                threshold = 0;
+                return;
+            }
+            min = Math.min(min, current.count);
+        }
+        threshold = min;
+    }
+
+    /**
+     * Returns the top destinations of the last ended window (or of the current one if none ended yet), by decreasing
+     * count
+     */
+    public List<Destination> getTopDestinations() {
+        rotateIfEnded();
+        List<Destination> destinations = lastWindow;
+        return destinations != null ? destinations : snapshot(System.nanoTime() - windowStart.get());
+    }
+
+    private void rotateIfEnded() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            // selections counted concurrently may be lost or carried over: the sketch is approximate anyway
+            lastWindow = snapshot(now - start);
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+            for (int i = 0; i < top.length(); i++) {
+                top.set(i, null);
+            }
+            threshold = 0;
+        }
+    }
+
+    private List<Destination> snapshot(long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        // a host may have been inserted twice by concurrent threads: keep its highest count
+        Map<String, Destination> byHost = new HashMap<>();
+        for (int i = 0; i < top.length(); i++) {
+            Destination current = top.get(i);
+            if (current != null) {
+                byHost.merge(current.host, current, (d1, d2) -> d1.count >= d2.count ? d1 : d2);
+            }
+        }
+        List<Destination> destinations = new ArrayList<>(byHost.size());
+        for (Destination destination : byHost.values()) {
+            destinations.add(new Destination(destination.host, destination.hash, destination.count, destination.count / seconds));
+        }
+        destinations.sort((d1, d2) -> Long.compare(d2.count, d1.count));
+        return Collections.unmodifiableList(destinations);
+    }
+
+    private static long hash(String host) {
+        // FNV-1a over the characters (hosts with colliding String.hashCode() values must not share every row), then a
+        // 64-bit finalizer (murmur3 fmix64) to spread the low bits
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < host.length(); i++) {
+            h = (h ^ host.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
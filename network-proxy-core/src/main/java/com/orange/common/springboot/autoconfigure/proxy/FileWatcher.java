@@ -0,0 +1,117 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Watches files with a NIO {@link WatchService}, and notifies a callback whenever a file content changes
+ * <p>
+ * Parent directories are watched (a {@link WatchService} can't watch single files), and any event in a directory
+ * triggers a check of the size and last modification time of every watched file in it: this also detects files
+ * replaced through symbolic links swaps (e.g. Kubernetes mounted secrets and config maps).
+ */
+class FileWatcher implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileWatcher.class);
+
+    private static class WatchedFile {
+        private final Path path;
+        private final Runnable onChange;
+        private volatile String signature;
+
+        private WatchedFile(Path path, Runnable onChange) {
+            this.path = path;
+            this.onChange = onChange;
+            this.signature = signature(path);
+        }
+
+        private void checkChanged() {
+            String current = signature(path);
+            if (!Objects.equals(current, signature)) {
+                signature = current;
+                LOGGER.info("File {} changed", path);
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Error while processing change of file {}", path, e);
+                }
+            }
+        }
+
+        private static String signature(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return attributes.lastModifiedTime() + "/" + attributes.size() + "/" + attributes.fileKey();
+            } catch (IOException e) {
+                // file is (maybe temporarily) missing
+                return null;
+            }
+        }
+    }
+
+    private final WatchService watchService;
+    private final Map<Path, List<WatchedFile>> dir2Files = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    FileWatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(this::run, "proxy-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Watches the given file
+     *
+     * @param file     file to watch
+     * @param onChange callback invoked (from the watcher thread) whenever the file content changes
+     */
+    void register(Path file, Runnable onChange) throws IOException {
+        Path absolute = file.toAbsolutePath().normalize();
+        Path dir = absolute.getParent();
+        List<WatchedFile> files = dir2Files.computeIfAbsent(dir, d -> new CopyOnWriteArrayList<>());
+        if (files.isEmpty()) {
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        files.add(new WatchedFile(absolute, onChange));
+        LOGGER.debug("Watching file {}", absolute);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // drain events: watched files are checked anyway
+                key.pollEvents();
+                List<WatchedFile> files = dir2Files.get((Path) key.watchable());
+                if (files != null) {
+                    files.forEach(WatchedFile::checkChanged);
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watcher closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,93 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A {@link HostnameMatcher} backed by an external host list file
+ * <p>
+ * The file contains one host or domain per line (same syntax as {@link HostOrDomainMatcher}, {@code *.domain} being
+ * accepted as a domain). Blank lines and lines starting with {@code #} are ignored, as well as unsupported entries
+ * (regular expressions and inner wildcards). The file is read line by line into a {@link PackedHostSet}, and can be
+ * {@link #reload() reloaded} at runtime.
+ */
+class HostListMatcher extends HostnameMatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostListMatcher.class);
+
+    private final Path path;
+    private volatile PackedHostSet hosts;
+
+    HostListMatcher(Path path) throws IOException {
+        this.path = path;
+        this.hosts = read(path);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the number of loaded entries
+     */
+    int size() {
+        return hosts.size();
+    }
+
+    @Override
+    public boolean matches(String hostname) {
+        return hosts.matches(hostname);
+    }
+
+    /**
+     * Reloads the host list file (keeps the previous entries if it can't be read)
+     *
+     * @return {@code true} if the file was successfully reloaded
+     */
+    boolean reload() {
+        try {
+            hosts = read(path);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Could not reload host list {}: keeping {} previous entries", path, hosts.size(), e);
+            return false;
+        }
+    }
+
+    static PackedHostSet read(Path path) throws IOException {
+        long start = System.nanoTime();
+        PackedHostSet.Builder builder = new PackedHostSet.Builder();
+        int ignored = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (!builder.add(line)) {
+                    ignored++;
+                }
+            }
+        }
+        PackedHostSet hosts = builder.build();
+        if (ignored > 0) {
+            LOGGER.warn("Host list {}: {} unsupported entries ignored", path, ignored);
+        }
+        LOGGER.info("Host list {} loaded: {} entries ({} bytes) in {} ms", path, hosts.size(), hosts.sizeInBytes(), (System.nanoTime() - start) / 1_000_000);
+        return hosts;
+    }
+
+    @Override
+    public String toString() {
+        return "HostListMatcher{" +
+                "path=" + path +
+                ", size=" + hosts.size() +
+                '}';
+    }
+}
@@ -0,0 +1,158 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.net.IDN;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Hostnames canonicalization, applied both to looked up hostnames and to configured matchers
+ * <ul>
+ * <li>ASCII lower-casing ({@code Example.COM} &rarr; {@code example.com}),</li>
+ * <li>trailing dot removal ({@code example.com.} &rarr; {@code example.com}),</li>
+ * <li>internationalized domain names to punycode ({@code bücher.de} &rarr; {@code xn--bcher-kva.de}),</li>
+ * <li>IPv6 literals without brackets and in full form ({@code [::1]} &rarr; {@code 0:0:0:0:0:0:0:1}).</li>
+ * </ul>
+ * Hostnames that are already canonical (the vast majority) are returned as is, without any allocation.
+ */
+final class HostNames {
+    private HostNames() {
+    }
+
+    /**
+     * Canonicalizes a host or domain matcher (keeping its leading dot, if any)
+     */
+    static String canonicalizeHostOrDomain(String hostOrDomain) {
+        return hostOrDomain.startsWith(".") ? "." + canonicalize(hostOrDomain.substring(1)) : canonicalize(hostOrDomain);
+    }
+
+    static String canonicalize(String host) {
+        if (host == null || isCanonical(host)) {
+            return host;
+        }
+        String canonical = host;
+        if (canonical.startsWith("[") && canonical.endsWith("]")) {
+            canonical = canonical.substring(1, canonical.length() - 1);
+        }
+        if (canonical.indexOf(':') >= 0) {
+            return canonicalizeIpv6(canonical);
+        }
+        int end = canonical.length();
+        while (end > 0 && canonical.charAt(end - 1) == '.') {
+            end--;
+        }
+        canonical = canonical.substring(0, end);
+        if (!isAscii(canonical)) {
+            try {
+                canonical = IDN.toASCII(canonical, IDN.ALLOW_UNASSIGNED);
+            } catch (IllegalArgumentException e) {
+                // not a valid IDN: only lower-case it
+            }
+        }
+        return toLowerCaseAscii(canonical);
+    }
+
+    /**
+     * Returns whether the host is an IP literal: an IPv4 address in dotted-quad form, or an IPv6 address (with or
+     * without brackets), parsed as in {@link #canonicalize(String)}, without any DNS lookup
+     */
+    static boolean isIpLiteral(String host) {
+        String literal = host;
+        if (literal.startsWith("[") && literal.endsWith("]")) {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        if (literal.indexOf(':') >= 0) {
+            return parseIpv6(literal) != null;
+        }
+        return isIpv4Literal(literal);
+    }
+
+    private static boolean isIpv4Literal(String host) {
+        int parts = 0;
+        int value = -1;
+        for (int i = 0; i <= host.length(); i++) {
+            char c = i < host.length() ? host.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || ++parts > 4) {
+                    return false;
+                }
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        return parts == 4;
+    }
+
+    private static boolean isCanonical(String host) {
+        int len = host.length();
+        if (len == 0 || host.charAt(len - 1) == '.') {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            char c = host.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String host) {
+        for (int i = 0; i < host.length(); i++) {
+            if (host.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String toLowerCaseAscii(String host) {
+        char[] chars = null;
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                if (chars == null) {
+                    chars = host.toCharArray();
+                }
+                chars[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return chars == null ? host : new String(chars);
+    }
+
+    private static String canonicalizeIpv6(String literal) {
+        InetAddress address = parseIpv6(literal);
+        return toLowerCaseAscii(address != null ? address.getHostAddress() : literal);
+    }
+
+    /**
+     * Parses an IPv6 literal (without brackets)
+     *
+     * @return the address, or {@code null} if not an IPv6 literal
+     */
+    private static InetAddress parseIpv6(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            boolean valid = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == ':' || c == '.';
+            if (!valid && c != '%') {
+                // not an IPv6 literal: don't risk a DNS lookup
+                return null;
+            }
+            if (c == '%') {
+                // keep the scope id as is
+                break;
+            }
+        }
+        try {
+            // a bracketed literal is parsed as an IPv6 address, never looked up
+            return InetAddress.getByName("[" + literal + "]");
+        } catch (UnknownHostException | SecurityException e) {
+            return null;
+        }
+    }
+}
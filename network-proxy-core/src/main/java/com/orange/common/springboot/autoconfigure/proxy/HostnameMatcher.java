@@ -0,0 +1,111 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matches hostnames against a configured pattern
+ * <p>
+ * Hostnames are expected in their canonical form (see {@link HostNames#canonicalize(String)}): host and domain
+ * matchers are canonicalized the same way, wildcard matchers are lower-cased, and regular expressions are matched
+ * ignoring the case of ASCII letters (so that patterns written for the hostnames as typed keep on matching). Regular
+ * expressions see IPv6 literals in their canonical form: no brackets, full form, lower-case (e.g.
+ * {@code 0:0:0:0:0:0:0:1} for {@code [::1]}).
+ */
+public abstract class HostnameMatcher {
+
+    public abstract boolean matches(String hostname);
+
+    public static HostnameMatcher parse(String matcher) {
+        return parse(matcher, false);
+    }
+
+    /**
+     * Parses a matcher
+     *
+     * @param matcher    host, domain, wildcard or {@code /regex/} matcher
+     * @param linearTime whether regular expressions (and wildcards) shall be evaluated with the {@link LinearRegex}
+     *                   engine, bounding the cost of a match
+     * @throws java.util.regex.PatternSyntaxException if the regular expression is invalid (or not supported by the
+     *                                                linear-time engine)
+     */
+    public static HostnameMatcher parse(String matcher, boolean linearTime) {
+        if (matcher.startsWith("/") && matcher.endsWith("/")) {
+            // the matcher is a regexp
+            return compile(matcher.substring(1, matcher.length() - 1), linearTime);
+        } else {
+            // replace '*' wilcards, quote all the rest
+            StringBuilder regex = new StringBuilder(matcher.length());
+            int cur = 0;
+            int next = 0;
+            while (next < matcher.length() && (next = matcher.indexOf('*', cur)) >= 0) {
+                if (next - cur > 0) {
+                    regex.append(Pattern.quote(HostNames.toLowerCaseAscii(matcher.substring(cur, next))));
+                }
+                regex.append(".*");
+                cur = next + 1;
+            }
+            if (cur == 0) {
+                // no star in the matcher
+                return new HostOrDomainMatcher(HostNames.canonicalizeHostOrDomain(matcher));
+            } else {
+                // append tail
+                if (matcher.length() - cur > 0) {
+                    regex.append(Pattern.quote(HostNames.toLowerCaseAscii(matcher.substring(cur))));
+                }
+                return compile(regex.toString(), linearTime);
+            }
+        }
+    }
+
+    private static HostnameMatcher compile(String regex, boolean linearTime) {
+        return linearTime ? new LinearPatternMatcher(LinearRegex.compile(regex, true)) : new PatternMatcher(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
+    }
+
+    static class HostOrDomainMatcher extends HostnameMatcher {
+        private final String hostOrDomain;
+
+        private HostOrDomainMatcher(String hostOrDomain) {
+            this.hostOrDomain = hostOrDomain;
+        }
+
+        String getHostOrDomain() {
+            return hostOrDomain;
+        }
+
+        @Override
+        public boolean matches(String hostname) {
+            return hostname.endsWith(hostOrDomain)
+                    && (
+                    hostOrDomain.startsWith(".") // hostOrDomain is explicitly a domain
+                            || hostname.length() == hostOrDomain.length() // hostOrDomain is a hostname
+                            || hostname.charAt(hostname.length() - hostOrDomain.length() - 1) == '.' // hostOrDomain is maybe a domain name without leading '.'
+            );
+        }
+    }
+
+    static class PatternMatcher extends HostnameMatcher {
+        private final Pattern pattern;
+
+        private PatternMatcher(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean matches(String hostname) {
+            return pattern.matcher(hostname).matches();
+        }
+    }
+
+    static class LinearPatternMatcher extends HostnameMatcher {
+        private final LinearRegex regex;
+
+        private LinearPatternMatcher(LinearRegex regex) {
+            this.regex = regex;
+        }
+
+        @Override
+        public boolean matches(String hostname) {
+            return regex.matches(hostname);
+        }
+    }
+}
@@ -0,0 +1,760 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Regular expressions evaluated in linear time (RE2 style), for patterns applied to untrusted hostnames
+ * <p>
+ * The pattern is compiled into a Thompson NFA, simulated over the input one character at a time while tracking the
+ * set of active states (Pike VM without captures): matching costs {@code O(input length x pattern size)}, whatever
+ * the pattern and the input, whereas {@link java.util.regex} backtracking may be exponential.
+ * <p>
+ * Supports the usual {@link java.util.regex.Pattern} syntax without backtracking-only constructs: literals and
+ * escapes, {@code .}, character classes (ranges, negation, {@code \d \w \s} and their negations), groups
+ * ({@code (...)}, {@code (?:...)}, {@code (?<name>...)}), alternation, greedy and lazy quantifiers (including bounded
+ * {@code {n,m}} ones, up to {@value #MAX_REPEAT}), {@code \Q...\E} quoting and {@code ^ $ \A \z \Z \b \B}
+ * assertions. Backreferences, lookarounds, atomic groups, possessive quantifiers, inline flags, Unicode properties
+ * and class unions/intersections are rejected with a {@link PatternSyntaxException}, as well as patterns compiling to
+ * more than {@value #MAX_INSTRUCTIONS} instructions.
+ * <p>
+ * Only full matches are supported (same as {@link java.util.regex.Matcher#matches()}). Case-insensitive matching is
+ * limited to ASCII letters (same as {@link java.util.regex.Pattern#CASE_INSENSITIVE}).
+ */
+final class LinearRegex {
+    /**
+     * Max bound of a counted repetition
+     */
+    static final int MAX_REPEAT = 1000;
+    /**
+     * Max number of compiled instructions
+     */
+    static final int MAX_INSTRUCTIONS = 10_000;
+
+    private static final int OP_SET = 0;
+    private static final int OP_SPLIT = 1;
+    private static final int OP_JMP = 2;
+    private static final int OP_MATCH = 3;
+    private static final int OP_BEGIN = 4;
+    private static final int OP_END = 5;
+    private static final int OP_WORD_BOUNDARY = 6;
+    private static final int OP_NOT_WORD_BOUNDARY = 7;
+
+    private final String pattern;
+    private final int[] ops;
+    private final int[] args1;
+    private final int[] args2;
+    private final CharSet[] sets;
+
+    private LinearRegex(String pattern, int[] ops, int[] args1, int[] args2, CharSet[] sets) {
+        this.pattern = pattern;
+        this.ops = ops;
+        this.args1 = args1;
+        this.args2 = args2;
+        this.sets = sets;
+    }
+
+    /**
+     * Compiles the given regular expression
+     *
+     * @throws PatternSyntaxException if the pattern is invalid or not supported
+     */
+    static LinearRegex compile(String pattern) {
+        return compile(pattern, false);
+    }
+
+    /**
+     * Compiles the given regular expression, optionally ignoring the case of ASCII letters
+     *
+     * @throws PatternSyntaxException if the pattern is invalid or not supported
+     */
+    static LinearRegex compile(String pattern, boolean caseInsensitive) {
+        Node root = new Parser(pattern, caseInsensitive).parse();
+        Compiler compiler = new Compiler(pattern);
+        compiler.emit(root);
+        compiler.add(OP_MATCH, 0, 0, null);
+        return compiler.build();
+    }
+
+    String pattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns whether the entire input matches the pattern
+     */
+    boolean matches(CharSequence input) {
+        int size = ops.length;
+        StateSet current = new StateSet(size);
+        StateSet next = new StateSet(size);
+        // each state is added once, and pushes at most 2 successors
+        int[] stack = new int[2 * size + 1];
+        int len = input.length();
+        addState(current, 0, input, 0, stack);
+        for (int pos = 0; pos < len && current.size > 0; pos++) {
+            char c = input.charAt(pos);
+            for (int i = 0; i < current.size; i++) {
+                int pc = current.dense[i];
+                if (ops[pc] == OP_SET && sets[pc].contains(c)) {
+                    addState(next, pc + 1, input, pos + 1, stack);
+                }
+            }
+            StateSet swap = current;
+            current = next;
+            next = swap;
+            next.clear();
+        }
+        for (int i = 0; i < current.size; i++) {
+            if (ops[current.dense[i]] == OP_MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a state and its epsilon closure (evaluating assertions at {@code pos})
+     */
+    private void addState(StateSet set, int start, CharSequence input, int pos, int[] stack) {
+        int top = 0;
+        stack[top++] = start;
+        while (top > 0) {
+            int pc = stack[--top];
+            if (!set.add(pc)) {
+                continue;
+            }
+            switch (ops[pc]) {
+                case OP_JMP:
+                    stack[top++] = args1[pc];
+                    break;
+                case OP_SPLIT:
+                    stack[top++] = args2[pc];
+                    stack[top++] = args1[pc];
+                    break;
+                case OP_BEGIN:
+                    if (pos == 0) {
+                        stack[top++] = pc + 1;
+                    }
+                    break;
+                case OP_END:
+                    if (pos == input.length()) {
+                        stack[top++] = pc + 1;
+                    }
+                    break;
+                case OP_WORD_BOUNDARY:
+                case OP_NOT_WORD_BOUNDARY:
+                    boolean before = pos > 0 && isWord(input.charAt(pos - 1));
+                    boolean after = pos < input.length() && isWord(input.charAt(pos));
+                    if ((before != after) == (ops[pc] == OP_WORD_BOUNDARY)) {
+                        stack[top++] = pc + 1;
+                    }
+                    break;
+                default:
+                    // SET and MATCH states wait for the next character (or the end of input)
+                    break;
+            }
+        }
+    }
+
+    private static boolean isWord(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * Set of NFA states, with constant time insertion, membership test and clear
+     */
+    private static class StateSet {
+        private final int[] dense;
+        private final int[] sparse;
+        private int size;
+
+        private StateSet(int capacity) {
+            this.dense = new int[capacity];
+            this.sparse = new int[capacity];
+        }
+
+        private boolean add(int state) {
+            int idx = sparse[state];
+            if (idx < size && dense[idx] == state) {
+                return false;
+            }
+            sparse[state] = size;
+            dense[size++] = state;
+            return true;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Immutable set of characters, as sorted disjoint ranges
+     */
+    static class CharSet {
+        private static final CharSet DIGITS = new CharSet(new int[]{'0', '9'});
+        private static final CharSet WORDS = new CharSet(new int[]{'0', '9', 'A', 'Z', '_', '_', 'a', 'z'});
+        private static final CharSet SPACES = new CharSet(new int[]{'\t', '\r', ' ', ' '});
+        private static final CharSet LINE_TERMINATORS = new CharSet(new int[]{'\n', '\n', '\r', '\r', '\u0085', '\u0085', '\u2028', '\u2029'});
+
+        private final int[] ranges;
+
+        private CharSet(int[] ranges) {
+            this.ranges = ranges;
+        }
+
+        static CharSet of(char c) {
+            return new CharSet(new int[]{c, c});
+        }
+
+        boolean contains(char c) {
+            for (int i = 0; i < ranges.length && ranges[i] <= c; i += 2) {
+                if (c <= ranges[i + 1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        CharSet complement() {
+            List<Integer> result = new ArrayList<>();
+            int from = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > from) {
+                    result.add(from);
+                    result.add(ranges[i] - 1);
+                }
+                from = ranges[i + 1] + 1;
+            }
+            if (from <= Character.MAX_VALUE) {
+                result.add(from);
+                result.add((int) Character.MAX_VALUE);
+            }
+            return new CharSet(result.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        /**
+         * Builds a set from unsorted, possibly overlapping ranges
+         */
+        static CharSet union(List<int[]> ranges) {
+            ranges.sort((a, b) -> a[0] - b[0]);
+            List<Integer> result = new ArrayList<>();
+            for (int[] range : ranges) {
+                int last = result.size() - 1;
+                if (last > 0 && range[0] <= result.get(last) + 1) {
+                    result.set(last, Math.max(result.get(last), range[1]));
+                } else {
+                    result.add(range[0]);
+                    result.add(range[1]);
+                }
+            }
+            return new CharSet(result.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        /**
+         * Returns this set with the other case of every ASCII letter it contains
+         */
+        CharSet foldAsciiCase() {
+            List<int[]> folded = new ArrayList<>();
+            addTo(folded);
+            for (int i = 0; i < ranges.length; i += 2) {
+                addShifted(folded, ranges[i], ranges[i + 1], 'A', 'Z', 'a' - 'A');
+                addShifted(folded, ranges[i], ranges[i + 1], 'a', 'z', 'A' - 'a');
+            }
+            return folded.size() == ranges.length / 2 ? this : union(folded);
+        }
+
+        private static void addShifted(List<int[]> target, int from, int to, int min, int max, int shift) {
+            int lo = Math.max(from, min);
+            int hi = Math.min(to, max);
+            if (lo <= hi) {
+                target.add(new int[]{lo + shift, hi + shift});
+            }
+        }
+
+        private void addTo(List<int[]> target) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                target.add(new int[]{ranges[i], ranges[i + 1]});
+            }
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(ranges);
+        }
+    }
+
+    // ================================================================================================================
+    // === Parser
+    // ================================================================================================================
+
+    private abstract static class Node {
+    }
+
+    private static class SetNode extends Node {
+        private final CharSet set;
+
+        private SetNode(CharSet set) {
+            this.set = set;
+        }
+    }
+
+    private static class AssertNode extends Node {
+        private final int op;
+
+        private AssertNode(int op) {
+            this.op = op;
+        }
+    }
+
+    private static class ConcatNode extends Node {
+        private final List<Node> nodes;
+
+        private ConcatNode(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+    }
+
+    private static class AltNode extends Node {
+        private final List<Node> alternatives;
+
+        private AltNode(List<Node> alternatives) {
+            this.alternatives = alternatives;
+        }
+    }
+
+    private static class RepeatNode extends Node {
+        private final Node node;
+        private final int min;
+        /**
+         * Max occurrences ({@code -1} means unbounded)
+         */
+        private final int max;
+
+        private RepeatNode(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private static class Parser {
+        private final String pattern;
+        private final boolean caseInsensitive;
+        private int pos;
+
+        private Parser(String pattern, boolean caseInsensitive) {
+            this.pattern = pattern;
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        /**
+         * Adds the other case of ASCII letters when case-insensitive (before any negation, as {@link java.util.regex})
+         */
+        private CharSet fold(CharSet set) {
+            return caseInsensitive ? set.foldAsciiCase() : set;
+        }
+
+        private Node parse() {
+            Node node = parseAlternation();
+            if (pos < pattern.length()) {
+                // only a closing parenthesis can stop the top-level alternation
+                throw error("Unmatched closing ')'", pos);
+            }
+            return node;
+        }
+
+        private Node parseAlternation() {
+            List<Node> alternatives = new ArrayList<>();
+            alternatives.add(parseConcatenation());
+            while (pos < pattern.length() && pattern.charAt(pos) == '|') {
+                pos++;
+                alternatives.add(parseConcatenation());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : new AltNode(alternatives);
+        }
+
+        private Node parseConcatenation() {
+            List<Node> nodes = new ArrayList<>();
+            while (pos < pattern.length() && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+                nodes.add(parseRepetition());
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new ConcatNode(nodes);
+        }
+
+        private Node parseRepetition() {
+            Node atom = parseAtom();
+            if (pos >= pattern.length()) {
+                return atom;
+            }
+            int start = pos;
+            int min;
+            int max;
+            switch (pattern.charAt(pos)) {
+                case '*':
+                    min = 0;
+                    max = -1;
+                    pos++;
+                    break;
+                case '+':
+                    min = 1;
+                    max = -1;
+                    pos++;
+                    break;
+                case '?':
+                    min = 0;
+                    max = 1;
+                    pos++;
+                    break;
+                case '{':
+                    pos++;
+                    min = parseNumber(start);
+                    max = min;
+                    if (pos < pattern.length() && pattern.charAt(pos) == ',') {
+                        pos++;
+                        max = pos < pattern.length() && pattern.charAt(pos) == '}' ? -1 : parseNumber(start);
+                    }
+                    if (pos >= pattern.length() || pattern.charAt(pos) != '}') {
+                        throw error("Unclosed counted closure", pos);
+                    }
+                    pos++;
+                    if (max != -1 && max < min) {
+                        throw error("Illegal repetition range", start);
+                    }
+                    if (min > MAX_REPEAT || max > MAX_REPEAT) {
+                        throw error("Repetitions over " + MAX_REPEAT + " are not supported", start);
+                    }
+                    break;
+                default:
+                    return atom;
+            }
+            if (pos < pattern.length()) {
+                char suffix = pattern.charAt(pos);
+                if (suffix == '?') {
+                    // lazy quantifier: same set of full matches
+                    pos++;
+                } else if (suffix == '+') {
+                    throw error("Possessive quantifiers are not supported", pos);
+                }
+            }
+            if (pos < pattern.length() && "*+?{".indexOf(pattern.charAt(pos)) >= 0) {
+                throw error("Dangling meta character '" + pattern.charAt(pos) + "'", pos);
+            }
+            return new RepeatNode(atom, min, max);
+        }
+
+        private int parseNumber(int start) {
+            int from = pos;
+            while (pos < pattern.length() && Character.isDigit(pattern.charAt(pos)) && pos - from < 9) {
+                pos++;
+            }
+            if (pos == from) {
+                throw error("Illegal repetition", start);
+            }
+            return Integer.parseInt(pattern.substring(from, pos));
+        }
+
+        private Node parseAtom() {
+            char c = pattern.charAt(pos);
+            switch (c) {
+                case '(':
+                    return parseGroup();
+                case '[':
+                    return new SetNode(parseClass());
+                case '.':
+                    pos++;
+                    return new SetNode(CharSet.LINE_TERMINATORS.complement());
+                case '^':
+                    pos++;
+                    return new AssertNode(OP_BEGIN);
+                case '$':
+                    pos++;
+                    return new AssertNode(OP_END);
+                case '\\':
+                    return parseEscape();
+                case '*':
+                case '+':
+                case '?':
+                    throw error("Dangling meta character '" + c + "'", pos);
+                case '{':
+                    throw error("Illegal repetition", pos);
+                default:
+                    pos++;
+                    return new SetNode(fold(CharSet.of(c)));
+            }
+        }
+
+        private Node parseGroup() {
+            int start = pos;
+            pos++;
+            if (pattern.startsWith("?:", pos)) {
+                pos += 2;
+            } else if (pattern.startsWith("?<", pos) && pos + 2 < pattern.length() && Character.isLetter(pattern.charAt(pos + 2))) {
+                // named group
+                int end = pattern.indexOf('>', pos);
+                if (end < 0) {
+                    throw error("Named capturing group is missing trailing '>'", pos);
+                }
+                pos = end + 1;
+            } else if (pattern.startsWith("?", pos)) {
+                throw error("Lookarounds, atomic groups and inline flags are not supported", start);
+            }
+            Node node = parseAlternation();
+            if (pos >= pattern.length() || pattern.charAt(pos) != ')') {
+                throw error("Unclosed group", pattern.length());
+            }
+            pos++;
+            return node;
+        }
+
+        private Node parseEscape() {
+            int start = pos;
+            pos++;
+            if (pos >= pattern.length()) {
+                throw error("Unexpected internal error", start);
+            }
+            char c = pattern.charAt(pos);
+            switch (c) {
+                case 'Q':
+                    int end = pattern.indexOf("\\E", pos + 1);
+                    String quoted = pattern.substring(pos + 1, end < 0 ? pattern.length() : end);
+                    pos = end < 0 ? pattern.length() : end + 2;
+                    List<Node> nodes = new ArrayList<>();
+                    for (int i = 0; i < quoted.length(); i++) {
+                        nodes.add(new SetNode(fold(CharSet.of(quoted.charAt(i)))));
+                    }
+                    return new ConcatNode(nodes);
+                case 'A':
+                    pos++;
+                    return new AssertNode(OP_BEGIN);
+                case 'z':
+                case 'Z':
+                    pos++;
+                    return new AssertNode(OP_END);
+                case 'b':
+                    pos++;
+                    return new AssertNode(OP_WORD_BOUNDARY);
+                case 'B':
+                    pos++;
+                    return new AssertNode(OP_NOT_WORD_BOUNDARY);
+                default:
+                    pos = start;
+                    return new SetNode(fold(parseClassEscape()));
+            }
+        }
+
+        /**
+         * Parses an escape sequence standing for a set of characters (possibly a single one)
+         */
+        private CharSet parseClassEscape() {
+            int start = pos;
+            pos++;
+            if (pos >= pattern.length()) {
+                throw error("Unexpected internal error", start);
+            }
+            char c = pattern.charAt(pos++);
+            switch (c) {
+                case 'd':
+                    return CharSet.DIGITS;
+                case 'D':
+                    return CharSet.DIGITS.complement();
+                case 'w':
+                    return CharSet.WORDS;
+                case 'W':
+                    return CharSet.WORDS.complement();
+                case 's':
+                    return CharSet.SPACES;
+                case 'S':
+                    return CharSet.SPACES.complement();
+                case 't':
+                    return CharSet.of('\t');
+                case 'n':
+                    return CharSet.of('\n');
+                case 'r':
+                    return CharSet.of('\r');
+                case 'f':
+                    return CharSet.of('\f');
+                case 'a':
+                    return CharSet.of('\u0007');
+                case 'e':
+                    return CharSet.of('\u001B');
+                case 'x':
+                    return CharSet.of(parseHex(start, 2));
+                case 'u':
+                    return CharSet.of(parseHex(start, 4));
+                default:
+                    if (c >= '1' && c <= '9' || c == 'k') {
+                        throw error("Backreferences are not supported", start);
+                    }
+                    if (Character.isLetterOrDigit(c)) {
+                        throw error("Unsupported escape sequence", start);
+                    }
+                    return CharSet.of(c);
+            }
+        }
+
+        private char parseHex(int start, int digits) {
+            if (pos + digits > pattern.length()) {
+                throw error("Illegal hexadecimal escape sequence", start);
+            }
+            try {
+                char c = (char) Integer.parseInt(pattern.substring(pos, pos + digits), 16);
+                pos += digits;
+                return c;
+            } catch (NumberFormatException e) {
+                throw error("Illegal hexadecimal escape sequence", start);
+            }
+        }
+
+        private CharSet parseClass() {
+            int start = pos;
+            pos++;
+            boolean negate = pos < pattern.length() && pattern.charAt(pos) == '^';
+            if (negate) {
+                pos++;
+            }
+            List<int[]> ranges = new ArrayList<>();
+            while (pos < pattern.length() && pattern.charAt(pos) != ']') {
+                char c = pattern.charAt(pos);
+                if (c == '[' || pattern.startsWith("&&", pos)) {
+                    throw error("Character class unions and intersections are not supported", pos);
+                }
+                int from;
+                if (c == '\\') {
+                    CharSet escaped = parseClassEscape();
+                    if (escaped.ranges.length != 2 || escaped.ranges[0] != escaped.ranges[1]) {
+                        escaped.addTo(ranges);
+                        continue;
+                    }
+                    from = escaped.ranges[0];
+                } else {
+                    from = c;
+                    pos++;
+                }
+                int to = from;
+                if (pos + 1 < pattern.length() && pattern.charAt(pos) == '-' && pattern.charAt(pos + 1) != ']') {
+                    pos++;
+                    int rangeStart = pos;
+                    if (pattern.charAt(pos) == '\\') {
+                        CharSet escaped = parseClassEscape();
+                        if (escaped.ranges.length != 2 || escaped.ranges[0] != escaped.ranges[1]) {
+                            throw error("Illegal character range", rangeStart);
+                        }
+                        to = escaped.ranges[0];
+                    } else if (pattern.charAt(pos) == '[') {
+                        throw error("Character class unions and intersections are not supported", pos);
+                    } else {
+                        to = pattern.charAt(pos++);
+                    }
+                    if (to < from) {
+                        throw error("Illegal character range", rangeStart);
+                    }
+                }
+                ranges.add(new int[]{from, to});
+            }
+            if (pos >= pattern.length()) {
+                throw error("Unclosed character class", pattern.length() - 1);
+            }
+            pos++;
+            if (ranges.isEmpty()) {
+                throw error("Empty character class", start);
+            }
+            CharSet set = fold(CharSet.union(ranges));
+            return negate ? set.complement() : set;
+        }
+
+        private PatternSyntaxException error(String description, int index) {
+            return new PatternSyntaxException(description, pattern, index);
+        }
+    }
+
+    // ================================================================================================================
+    // === Compiler
+    // ================================================================================================================
+
+    private static class Compiler {
+        private final String pattern;
+        private int[] ops = new int[16];
+        private int[] args1 = new int[16];
+        private int[] args2 = new int[16];
+        private CharSet[] sets = new CharSet[16];
+        private int size;
+
+        private Compiler(String pattern) {
+            this.pattern = pattern;
+        }
+
+        private int add(int op, int arg1, int arg2, CharSet set) {
+            if (size == MAX_INSTRUCTIONS) {
+                throw new PatternSyntaxException("Pattern too complex (more than " + MAX_INSTRUCTIONS + " instructions)", pattern, -1);
+            }
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                args1 = Arrays.copyOf(args1, size * 2);
+                args2 = Arrays.copyOf(args2, size * 2);
+                sets = Arrays.copyOf(sets, size * 2);
+            }
+            ops[size] = op;
+            args1[size] = arg1;
+            args2[size] = arg2;
+            sets[size] = set;
+            return size++;
+        }
+
+        private void emit(Node node) {
+            if (node instanceof SetNode) {
+                add(OP_SET, 0, 0, ((SetNode) node).set);
+            } else if (node instanceof AssertNode) {
+                add(((AssertNode) node).op, 0, 0, null);
+            } else if (node instanceof ConcatNode) {
+                for (Node child : ((ConcatNode) node).nodes) {
+                    emit(child);
+                }
+            } else if (node instanceof AltNode) {
+                List<Node> alternatives = ((AltNode) node).alternatives;
+                List<Integer> jumps = new ArrayList<>();
+                for (int i = 0; i < alternatives.size() - 1; i++) {
+                    int split = add(OP_SPLIT, size + 1, 0, null);
+                    emit(alternatives.get(i));
+                    jumps.add(add(OP_JMP, 0, 0, null));
+                    args2[split] = size;
+                }
+                emit(alternatives.get(alternatives.size() - 1));
+                for (int jump : jumps) {
+                    args1[jump] = size;
+                }
+            } else {
+                RepeatNode repeat = (RepeatNode) node;
+                for (int i = 0; i < repeat.min; i++) {
+                    emit(repeat.node);
+                }
+                if (repeat.max == -1) {
+                    int split = add(OP_SPLIT, size + 1, 0, null);
+                    emit(repeat.node);
+                    add(OP_JMP, split, 0, null);
+                    args2[split] = size;
+                } else {
+                    List<Integer> splits = new ArrayList<>();
+                    for (int i = repeat.min; i < repeat.max; i++) {
+                        splits.add(add(OP_SPLIT, size + 1, 0, null));
+                        emit(repeat.node);
+                    }
+                    for (int split : splits) {
+                        args2[split] = size;
+                    }
+                }
+            }
+        }
+
+        private LinearRegex build() {
+            return new LinearRegex(pattern, Arrays.copyOf(ops, size), Arrays.copyOf(args1, size), Arrays.copyOf(args2, size), Arrays.copyOf(sets, size));
+        }
+    }
+}
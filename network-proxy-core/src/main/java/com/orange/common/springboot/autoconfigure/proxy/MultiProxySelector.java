@@ -0,0 +1,1098 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.SocketFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.*;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This is a {@link ProxySelector} implementation able to manage several {@link Proxy} depending on the uri scheme and host
+ * <p>
+ * Built with {@link #builder()}:
+ * <pre>
+ * MultiProxySelector selector = MultiProxySelector.builder()
+ *         .server(ProxyServer.builder("proxy.acme.com", 3128).notForHosts("localhost").build())
+ *         .healthCheck(Duration.ofSeconds(10), Duration.ofSeconds(2))
+ *         .build();
+ * ProxySelector.setDefault(selector);
+ * </pre>
+ * {@link #close() Closing} the selector stops its health checks and host list files watching (if any).
+ */
+public class MultiProxySelector extends ProxySelector implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiProxySelector.class);
+
+    /**
+     * What to do when all the candidate proxies of a server are unhealthy
+     */
+    enum Fallback {
+        /**
+         * Keep on using the candidate proxies
+         */
+        NONE,
+        /**
+         * Use a direct connection (also tried last when all candidates fail)
+         */
+        DIRECT,
+        /**
+         * Fail immediately (see {@link #FAIL_FAST_PROXY})
+         */
+        FAIL_FAST,
+        /**
+         * Use the candidates of another server (also tried last when all candidates fail)
+         */
+        SERVER
+    }
+
+    /**
+     * Proxy returned when connections shall fail immediately
+     * <p>
+     * {@link ProxySelector#select(URI)} can't throw an {@link IOException}, but an empty list is not supported by
+     * every JDK client: this proxy (port {@code 0} on the loopback interface) makes any connection attempt fail
+     * immediately with a {@link java.net.ConnectException}, without any DNS lookup nor network round trip.
+     */
+    static final Proxy FAIL_FAST_PROXY = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+    /**
+     * An in-flight connection through a proxy, released when closed
+     */
+    public interface Lease extends Closeable {
+        @Override
+        void close();
+    }
+
+    private static final Lease NO_LEASE = () -> {
+    };
+
+    private static final List<Proxy> NO_PROXY_LIST = Collections.singletonList(Proxy.NO_PROXY);
+    private static final List<Proxy> FAIL_FAST_LIST = Collections.singletonList(FAIL_FAST_PROXY);
+
+    /**
+     * Availability of a candidate proxy (or of the best candidate of a server), from the most to the least available
+     */
+    private enum Availability {
+        /**
+         * Healthy and not saturated
+         */
+        AVAILABLE,
+        /**
+         * Healthy but saturated
+         */
+        SATURATED,
+        /**
+         * Unhealthy
+         */
+        UNHEALTHY
+    }
+
+    static class ProxyEntry {
+        /**
+         * Entry used when no proxy matches
+         */
+        static final ProxyEntry DIRECT = new ProxyEntry(null, Collections.singletonList(new ProxyStats(Proxy.NO_PROXY)), Collections.emptyList(), Collections.emptyList(), 0, Fallback.NONE);
+
+        private final ProxyServer cfg;
+        private final List<ProxyStats> candidates;
+        private final List<Proxy> singleProxy;
+        private final List<HostnameMatcher> positiveMatchers;
+        private final List<HostnameMatcher> negativeMatchers;
+        private final double explorationRate;
+        private final Fallback fallback;
+        private ProxyEntry fallbackEntry;
+        /**
+         * Index in the servers list ({@code -1} for {@link #DIRECT})
+         */
+        private int index = -1;
+
+        private ProxyEntry(ProxyServer cfg, List<ProxyStats> candidates, List<HostnameMatcher> positiveMatchers, List<HostnameMatcher> negativeMatchers, double explorationRate, Fallback fallback) {
+            this.cfg = cfg;
+            this.candidates = candidates;
+            this.singleProxy = Collections.singletonList(candidates.get(0).getProxy());
+            this.positiveMatchers = positiveMatchers;
+            this.negativeMatchers = negativeMatchers;
+            this.explorationRate = explorationRate;
+            this.fallback = fallback;
+        }
+
+        /**
+         * Returns the proxies to try, in order
+         * <p>
+         * Available candidates come first, ordered by expected connect latency, then saturated ones, then unhealthy
+         * ones, then the fallback (if any). When no candidate is available, only the fallback is returned (with no
+         * fallback, saturated and unhealthy candidates are still returned: the connections limit is soft).
+         */
+        List<Proxy> getProxies() {
+            return getProxies(false);
+        }
+
+        /**
+         * Same as {@link #getProxies()}, counting the saturated candidates that get skipped (for actual selections)
+         */
+        List<Proxy> getProxies(boolean countSaturations) {
+            if (candidates.size() == 1 && fallback == Fallback.NONE) {
+                return singleProxy;
+            }
+            List<Proxy> proxies = new ArrayList<>(candidates.size() + 1);
+            Availability availability = orderCandidates(proxies, countSaturations, true);
+            boolean available = availability == Availability.AVAILABLE;
+            switch (fallback) {
+                case DIRECT:
+                    if (!available) {
+                        return NO_PROXY_LIST;
+                    }
+                    proxies.add(Proxy.NO_PROXY);
+                    break;
+                case FAIL_FAST:
+                    if (!available) {
+                        return FAIL_FAST_LIST;
+                    }
+                    break;
+                case SERVER:
+                    List<Proxy> fallbackProxies = fallbackEntry.getProxies(countSaturations);
+                    if (!available) {
+                        return fallbackProxies;
+                    }
+                    for (Proxy proxy : fallbackProxies) {
+                        if (!proxies.contains(proxy)) {
+                            proxies.add(proxy);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return Collections.unmodifiableList(proxies);
+        }
+
+        /**
+         * Adds the candidate proxies to {@code proxies}: available (healthy and not saturated) ones first, ordered by
+         * expected connect latency, then saturated ones, then unhealthy ones
+         * <p>
+         * With a probability of {@code explorationRate}, a random candidate is promoted first so that proxies with
+         * degraded statistics keep on being evaluated.
+         *
+         * @param countSaturations whether saturated candidates skipped in favor of an available one (or of the
+         *                         fallback) shall be counted
+         * @param explore          whether exploration applies
+         */
+        private Availability orderCandidates(List<Proxy> proxies, boolean countSaturations, boolean explore) {
+            ProxyStats[] ordered = candidates.toArray(new ProxyStats[0]);
+            if (ordered.length > 1) {
+                double[] scores = new double[ordered.length];
+                for (int i = 0; i < ordered.length; i++) {
+                    scores[i] = ordered[i].getExpectedLatencyMillis();
+                }
+                // stable insertion sort: few candidates, and ties keep the configuration order
+                for (int i = 1; i < ordered.length; i++) {
+                    ProxyStats stats = ordered[i];
+                    double score = scores[i];
+                    int j = i - 1;
+                    while (j >= 0 && scores[j] > score) {
+                        ordered[j + 1] = ordered[j];
+                        scores[j + 1] = scores[j];
+                        j--;
+                    }
+                    ordered[j + 1] = stats;
+                    scores[j + 1] = score;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                if (explore && explorationRate > 0 && random.nextDouble() < explorationRate) {
+                    int explored = 1 + random.nextInt(ordered.length - 1);
+                    ProxyStats stats = ordered[explored];
+                    System.arraycopy(ordered, 0, ordered, 1, explored);
+                    ordered[0] = stats;
+                }
+            }
+            Availability[] states = new Availability[ordered.length];
+            Availability best = Availability.UNHEALTHY;
+            for (int i = 0; i < ordered.length; i++) {
+                states[i] = !ordered[i].isHealthy() ? Availability.UNHEALTHY : ordered[i].isSaturated() ? Availability.SATURATED : Availability.AVAILABLE;
+                if (states[i].compareTo(best) < 0) {
+                    best = states[i];
+                }
+            }
+            if (countSaturations && (best == Availability.AVAILABLE || fallback != Fallback.NONE)) {
+                for (int i = 0; i < ordered.length; i++) {
+                    if (states[i] == Availability.SATURATED) {
+                        ordered[i].recordSaturation();
+                    }
+                }
+            }
+            for (Availability availability : Availability.values()) {
+                for (int i = 0; i < ordered.length; i++) {
+                    if (states[i] == availability) {
+                        proxies.add(ordered[i].getProxy());
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Returns the preferred candidate: the first one of the deterministic order (available candidates first, by
+         * expected connect latency), without exploration and regardless of the fallback ({@link Proxy#NO_PROXY} for
+         * {@link #DIRECT})
+         */
+        Proxy getPreferredProxy() {
+            if (candidates.size() == 1) {
+                return singleProxy.get(0);
+            }
+            List<Proxy> ordered = new ArrayList<>(candidates.size());
+            orderCandidates(ordered, false, false);
+            return ordered.get(0);
+        }
+
+        /**
+         * Returns the main proxy ({@link Proxy#NO_PROXY} for {@link #DIRECT})
+         */
+        Proxy getProxy() {
+            return singleProxy.get(0);
+        }
+
+        boolean matches(String protocol, String host) {
+            // test protocol matches
+            if (!cfg.getForProtocols().contains(protocol)) {
+                return false;
+            }
+            // test matchers
+            if (positiveMatchers.isEmpty()) {
+                return !negativeMatchers.stream().anyMatch(matcher -> matcher.matches(host));
+            } else {
+                return positiveMatchers.stream().anyMatch(matcher -> matcher.matches(host));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return cfg == null ? "DIRECT" : cfg.toString();
+        }
+    }
+
+    static class SchemeAndHost {
+        final String protocol;
+        final String host;
+
+        SchemeAndHost(String protocol, String host) {
+            this.protocol = protocol;
+            this.host = host;
+        }
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "protocol='" + protocol + '\'' +
+                    ", host='" + host + '\'' +
+                    '}';
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SchemeAndHost that = (SchemeAndHost) o;
+            return Objects.equals(protocol, that.protocol) &&
+                    Objects.equals(host, that.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(protocol, host);
+        }
+    }
+
+    /**
+     * Default probability of trying a random (non-preferred) candidate first
+     */
+    public static final double DEFAULT_EXPLORATION_RATE = 0.05;
+
+    private final List<ProxyEntry> proxies;
+
+    private final Map<Proxy, ProxyStats> proxy2Stats;
+
+    /**
+     * Selection cache, shared by all threads calling {@link #select(URI)}
+     */
+    private final Map<SchemeAndHost, ProxyEntry> hostname2Entries = new ConcurrentHashMap<>();
+
+    private final List<HostListMatcher> hostLists;
+
+    /**
+     * SOCKS proxies of servers with {@code remoteDns}
+     */
+    private final Set<Proxy> remoteDnsProxies;
+
+    /**
+     * Compiled rules ({@code null} when disabled)
+     */
+    private final CompiledRules compiledRules;
+
+    /**
+     * Off-heap selection cache, used instead of {@link #hostname2Entries} ({@code null} when disabled)
+     */
+    private final OffHeapSelectionCache offHeapCache;
+
+    private ProxyHealthChecker healthChecker;
+
+    private FileWatcher fileWatcher;
+
+    /**
+     * Candidate rules evaluation ({@code null} when disabled)
+     */
+    private CandidateRulesEvaluation candidateEvaluation;
+
+    /**
+     * Destination sketches of every configured proxy ({@code null} when disabled)
+     */
+    private Map<Proxy, DestinationSketch> destinationSketches;
+
+    private MultiProxySelector(List<ProxyEntry> proxies, Map<Proxy, ProxyStats> proxy2Stats, List<HostListMatcher> hostLists, Set<Proxy> remoteDnsProxies, CompiledRules compiledRules, OffHeapSelectionCache offHeapCache) {
+        this.proxies = proxies;
+        this.proxy2Stats = proxy2Stats;
+        this.hostLists = hostLists;
+        this.remoteDnsProxies = remoteDnsProxies;
+        this.compiledRules = compiledRules;
+        this.offHeapCache = offHeapCache;
+    }
+
+    /**
+     * Creates a selector builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Proxy> select(URI uri) {
+        return select(uri, true);
+    }
+
+    /**
+     * Same as {@link #select(URI)}, but the selection is neither sampled for the candidate rule set, counted as a
+     * destination nor recorded as an event (for synthetic requests, such as connections warm-up)
+     */
+    List<Proxy> selectUntracked(URI uri) {
+        return select(uri, false);
+    }
+
+    private List<Proxy> select(URI uri, boolean tracked) {
+        Object event = tracked ? ProxyEvents.beginSelect() : null;
+        SchemeAndHost key = schemeAndHost(uri);
+        if (tracked && candidateEvaluation != null) {
+            candidateEvaluation.sample(key);
+        }
+        if (offHeapCache != null) {
+            return selectOffHeap(event, key, tracked);
+        }
+        // plain get() first: on Java 8 computeIfAbsent() locks the bin even when the key is present
+        ProxyEntry cached = hostname2Entries.get(key);
+        List<Proxy> selected = (cached != null ? cached : hostname2Entries.computeIfAbsent(key, this::doGetEntry)).getProxies(tracked);
+        if (tracked) {
+            countDestination(key.host, selected);
+        }
+        ProxyEvents.commitSelect(event, key.protocol, key.host, cached != null, selected);
+        return selected;
+    }
+
+    /**
+     * Extracts the canonical scheme and host (no allocation when already canonical)
+     *
+     * @throws IllegalArgumentException if the URI has no scheme or host
+     */
+    private static SchemeAndHost schemeAndHost(URI uri) {
+        if (uri == null) {
+            throw new IllegalArgumentException("URI can't be null.");
+        }
+        String protocol = uri.getScheme();
+        String host = uri.getHost();
+
+        if (host == null) {
+            // This is a hack to ensure backward compatibility in two
+            // cases: 1. hostnames contain non-ascii characters,
+            // internationalized domain names. in which case, URI will
+            // return null, see BugID 4957669; 2. Some hostnames can
+            // contain '_' chars even though it's not supposed to be
+            // legal, in which case URI will return null for getHost,
+            // but not for getAuthority() See BugID 4913253
+            String auth = uri.getAuthority();
+            if (auth != null) {
+                int i;
+                i = auth.indexOf('@');
+                if (i >= 0) {
+                    auth = auth.substring(i + 1);
+                }
+                i = auth.startsWith("[") ? auth.indexOf(']') + 1 : auth.lastIndexOf(':');
+                if (i > 0 && i < auth.length()) {
+                    auth = auth.substring(0, i);
+                }
+                host = auth;
+            }
+        }
+
+        if (protocol == null || host == null) {
+            throw new IllegalArgumentException("protocol = " + protocol + " host = " + host);
+        }
+
+        return new SchemeAndHost(protocol.toLowerCase(Locale.ROOT), HostNames.canonicalize(host));
+    }
+
+    private List<Proxy> selectOffHeap(Object event, SchemeAndHost key, boolean tracked) {
+        long hash = OffHeapSelectionCache.hash(key.protocol, key.host);
+        int check = OffHeapSelectionCache.check(key.protocol, key.host);
+        int index = offHeapCache.get(hash, check);
+        boolean cacheHit = index != OffHeapSelectionCache.MISS;
+        ProxyEntry entry;
+        if (cacheHit) {
+            entry = index < 0 ? ProxyEntry.DIRECT : proxies.get(index);
+        } else {
+            entry = doGetEntry(key);
+            offHeapCache.put(hash, check, entry.index);
+        }
+        List<Proxy> selected = entry.getProxies(tracked);
+        if (tracked) {
+            countDestination(key.host, selected);
+        }
+        ProxyEvents.commitSelect(event, key.protocol, key.host, cacheHit, selected);
+        return selected;
+    }
+
+    /**
+     * Counts the destination in the sketch of the proxy tried first
+     */
+    private void countDestination(String host, List<Proxy> selected) {
+        if (destinationSketches != null) {
+            DestinationSketch sketch = destinationSketches.get(selected.get(0));
+            if (sketch != null) {
+                sketch.add(host);
+            }
+        }
+    }
+
+    /**
+     * Partitions URIs by the preferred proxy of the server they are routed to ({@link Proxy#NO_PROXY} for direct
+     * connections)
+     * <p>
+     * The preferred proxy is the first one {@link #select(URI)} returns, but deterministic: exploration (see
+     * {@link Builder#explorationRate(double)}) doesn't apply, and neither does the fallback, so that URIs are always
+     * partitioned by egress proxy (never by {@link #FAIL_FAST_PROXY}, nor {@link Proxy#NO_PROXY} for servers whose
+     * proxies are all unhealthy). Alternates are still ordered by health and expected latency, which may change over
+     * time.
+     * <p>
+     * URIs are grouped by scheme and host, and rules are evaluated once per distinct host (unless cached), without
+     * filling the selection cache. URIs of a same host keep their relative order.
+     *
+     * @throws IllegalArgumentException if a URI has no scheme or host
+     */
+    public Map<Proxy, List<URI>> classify(Collection<URI> uris) {
+        return classify(uris.stream());
+    }
+
+    /**
+     * Same as {@link #classify(Collection)}, spreading the work across the given pool
+     */
+    public Map<Proxy, List<URI>> classify(Collection<URI> uris, ForkJoinPool pool) {
+        try {
+            // parallel streams run in the pool they are started from
+            return pool.submit(() -> classify(uris.parallelStream())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while classifying URIs", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Map<Proxy, List<URI>> classify(Stream<URI> uris) {
+        Map<SchemeAndHost, List<URI>> host2Uris = uris.collect(Collectors.groupingBy(MultiProxySelector::schemeAndHost));
+        Stream<Map.Entry<SchemeAndHost, List<URI>>> hosts = uris.isParallel() ? host2Uris.entrySet().parallelStream() : host2Uris.entrySet().stream();
+        return hosts.collect(Collectors.groupingBy(
+                e -> firstProxy(e.getKey()),
+                Collector.<Map.Entry<SchemeAndHost, List<URI>>, List<URI>>of(ArrayList::new, (list, e) -> list.addAll(e.getValue()), (l1, l2) -> {
+                    l1.addAll(l2);
+                    return l1;
+                })));
+    }
+
+    private Proxy firstProxy(SchemeAndHost key) {
+        ProxyEntry cached = cachedEntry(key);
+        return (cached != null ? cached : findEntry(key.protocol, key.host)).getPreferredProxy();
+    }
+
+    /**
+     * Returns the cached entry of a scheme and host (from whichever selection cache is enabled), or {@code null}
+     */
+    private ProxyEntry cachedEntry(SchemeAndHost key) {
+        if (offHeapCache == null) {
+            return hostname2Entries.get(key);
+        }
+        int index = offHeapCache.get(OffHeapSelectionCache.hash(key.protocol, key.host), OffHeapSelectionCache.check(key.protocol, key.host));
+        return index == OffHeapSelectionCache.MISS ? null : index < 0 ? ProxyEntry.DIRECT : proxies.get(index);
+    }
+
+    private ProxyEntry doGetEntry(SchemeAndHost schemeAndHost) {
+        ProxyEntry entry = findEntry(schemeAndHost.protocol, schemeAndHost.host);
+        if (offHeapCache == null) {
+            LOGGER.info("Proxies for [{}] : {}", schemeAndHost, entry.candidates);
+        } else {
+            // tens of millions of hosts, evicted and selected again: one line per selection
+            LOGGER.debug("Proxies for [{}] : {}", schemeAndHost, entry.candidates);
+        }
+        return entry;
+    }
+
+    /**
+     * Evaluates the rules (bypassing the selection cache)
+     *
+     * @param protocol lower-case scheme
+     * @param host     canonical hostname
+     */
+    ProxyEntry findEntry(String protocol, String host) {
+        if (compiledRules != null) {
+            int index = compiledRules.find(protocol, host);
+            return index < 0 ? ProxyEntry.DIRECT : proxies.get(index);
+        }
+        return proxies.stream()
+                .filter(e -> e.matches(protocol, host))
+                .findFirst()
+                .orElse(ProxyEntry.DIRECT);
+    }
+
+    @Override
+    public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+        LOGGER.info("connect failed: {}", uri, ioe);
+        ProxyEvents.connectFailed(uri, sa, ioe);
+        for (ProxyStats stats : proxy2Stats.values()) {
+            if (stats.getProxy().address().equals(sa)) {
+                stats.recordFailure();
+            }
+        }
+    }
+
+    /**
+     * Reports a successful connection through {@code proxy}, ending its series of consecutive failures (reported by
+     * {@link #connectFailed})
+     * <p>
+     * The JDK only reports failures to proxy selectors: without health checks, successes have to be reported by HTTP
+     * client integrations (or the application). The OkHttp integration and {@link #socketFactory(String)} sockets do.
+     */
+    public void connectSucceeded(Proxy proxy) {
+        ProxyStats stats = proxy2Stats.get(proxy);
+        if (stats != null) {
+            stats.recordConnected();
+        }
+    }
+
+    /**
+     * Registers a connection through {@code proxy}, counted against its {@code max-concurrent-connections} until the
+     * returned lease is closed
+     * <p>
+     * The JDK doesn't tell proxy selectors when connections are opened or closed: HTTP client integrations (or the
+     * application) have to report them for the limits to be enforced. Connections made by {@code HttpURLConnection}
+     * are never counted; the OkHttp integration and {@link #socketFactory(String)} sockets are.
+     * <p>
+     * The limit is soft: the number of in-flight connections is checked at selection time, and concurrent selections
+     * may all see a proxy below its limit.
+     */
+    public Lease acquire(Proxy proxy) {
+        ProxyStats stats = proxy2Stats.get(proxy);
+        if (stats == null) {
+            return NO_LEASE;
+        }
+        stats.acquire();
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                stats.release();
+            }
+        };
+    }
+
+    /**
+     * Returns a socket factory connecting through the proxies selected for {@code protocol://host:port} (trying them
+     * in order), for clients accepting a {@link SocketFactory} (LDAP, database drivers...)
+     * <p>
+     * Destination hostnames are sent unresolved to SOCKS proxies of {@link ProxyServer.Builder#remoteDns(boolean)
+     * remote-dns} servers and to HTTP proxies (tunneling with {@code CONNECT}): no local DNS lookup is made, and names
+     * only the proxy can resolve are supported. Unconnected sockets are not supported.
+     *
+     * @param protocol the scheme the rules are matched with (e.g. {@code https})
+     */
+    public SocketFactory socketFactory(String protocol) {
+        return new ProxySocketFactory(this, protocol.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns whether destination hostnames shall be resolved by the given proxy (when it is shared by several
+     * servers, if any of them has {@code remoteDns})
+     */
+    boolean isRemoteDns(Proxy proxy) {
+        return remoteDnsProxies.contains(proxy);
+    }
+
+    /**
+     * Clears the selection cache (to be called whenever matchers change)
+     */
+    void clearCache() {
+        hostname2Entries.clear();
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        }
+    }
+
+    /**
+     * Reloads host list files whenever they change
+     */
+    void watchHostLists(FileWatcher watcher) throws IOException {
+        for (HostListMatcher hostList : hostLists) {
+            watcher.register(hostList.getPath(), () -> {
+                if (hostList.reload()) {
+                    clearCache();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the host list file matchers
+     */
+    List<HostListMatcher> getHostLists() {
+        return hostLists;
+    }
+
+    /**
+     * Returns the off-heap selection cache ({@code null} if disabled)
+     */
+    OffHeapSelectionCache getOffHeapCache() {
+        return offHeapCache;
+    }
+
+    /**
+     * Returns the candidate rules evaluation ({@code null} unless a candidate rule set is configured)
+     */
+    public CandidateRulesEvaluation getCandidateEvaluation() {
+        return candidateEvaluation;
+    }
+
+    /**
+     * Returns the top destinations (heavy hitters) of every configured proxy, over the last ended window (see
+     * {@link Builder#heavyHitters(int, Duration)}), or {@code null} if not tracked
+     */
+    public Map<Proxy, List<DestinationSketch.Destination>> getTopDestinations() {
+        if (destinationSketches == null) {
+            return null;
+        }
+        Map<Proxy, List<DestinationSketch.Destination>> topDestinations = new LinkedHashMap<>();
+        destinationSketches.forEach((proxy, sketch) -> topDestinations.put(proxy, sketch.getTopDestinations()));
+        return topDestinations;
+    }
+
+    /**
+     * Returns the statistics of every configured proxy
+     */
+    Collection<ProxyStats> getProxyStats() {
+        return proxy2Stats.values();
+    }
+
+    /**
+     * Stops health checks, host list files watching and candidate rules evaluation (logging its report)
+     */
+    @Override
+    public void close() throws IOException {
+        if (candidateEvaluation != null) {
+            candidateEvaluation.close();
+            LOGGER.info("Candidate rules evaluation: {}", candidateEvaluation);
+        }
+        if (healthChecker != null) {
+            healthChecker.close();
+        }
+        if (fileWatcher != null) {
+            fileWatcher.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MultiProxySelector{" +
+                "proxies=" + proxies +
+                '}';
+    }
+
+    /**
+     * {@link MultiProxySelector} builder
+     */
+    public static class Builder {
+        private final List<ProxyServer> servers = new ArrayList<>();
+        private double explorationRate = DEFAULT_EXPLORATION_RATE;
+        private Duration healthCheckInterval;
+        private Duration healthCheckTimeout = Duration.ofSeconds(2);
+        private boolean watchHostLists;
+        private boolean linearTimeRegex;
+        private boolean compiledRules;
+        private int offHeapCacheSize;
+        private List<ProxyServer> candidateServers;
+        private double candidateSampleRate;
+        private int candidateQueueCapacity;
+        private int heavyHittersTopK;
+        private Duration heavyHittersWindow;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a proxy server (servers are matched in order)
+         */
+        public Builder server(ProxyServer server) {
+            servers.add(server);
+            return this;
+        }
+
+        public Builder servers(List<ProxyServer> servers) {
+            this.servers.addAll(servers);
+            return this;
+        }
+
+        /**
+         * Probability (between 0 and 1) of trying a random proxy first, when a server has alternates. Default:
+         * {@code 0.05}.
+         */
+        public Builder explorationRate(double explorationRate) {
+            this.explorationRate = explorationRate;
+            return this;
+        }
+
+        /**
+         * Enables TCP probes of every proxy every {@code interval} (at least {@code 1ms}), each one with a connect
+         * {@code timeout} (at least {@code 1ms}). Default: disabled.
+         */
+        public Builder healthCheck(Duration interval, Duration timeout) {
+            this.healthCheckInterval = interval;
+            this.healthCheckTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Whether host list files shall be reloaded whenever they change. Default: {@code false}.
+         */
+        public Builder watchHostLists(boolean watchHostLists) {
+            this.watchHostLists = watchHostLists;
+            return this;
+        }
+
+        /**
+         * Whether {@code /regex/} and wildcard matchers shall be evaluated with a linear-time engine (bounding the
+         * cost of a selection whatever the hostname), rejecting patterns it can't support. Default: {@code false}.
+         */
+        public Builder linearTimeRegex(boolean linearTimeRegex) {
+            this.linearTimeRegex = linearTimeRegex;
+            return this;
+        }
+
+        /**
+         * Whether the servers rules shall be compiled into a single decision structure, evaluating all the host and
+         * domain matchers in one pass over the hostname (instead of testing each matcher of each server in turn).
+         * Selections are cached anyway: this only speeds up the first selection of every host. Default: {@code false}.
+         */
+        public Builder compiledRules(boolean compiledRules) {
+            this.compiledRules = compiledRules;
+            return this;
+        }
+
+        /**
+         * Enables a bounded selection cache of {@code maxHosts} entries stored off-heap (21 to 43 bytes per host,
+         * whatever its length), evicting hosts not recently selected when full, instead of the default unbounded
+         * on-heap cache. Meant for very high host cardinalities (e.g. crawlers). Default: {@code 0} (disabled).
+         * <p>
+         * At most {@code 805306368} hosts: larger values are rejected when the selector is built.
+         */
+        public Builder offHeapCache(int maxHosts) {
+            this.offHeapCacheSize = maxHosts;
+            return this;
+        }
+
+        /**
+         * Evaluates a candidate rule set (other servers, built with the same options) against the configured one on a
+         * sample of selections, in the background (see {@link #getCandidateEvaluation()}). Candidate servers are
+         * never selected, probed nor watched. Default: none.
+         *
+         * @param sampleRate    probability (between 0 and 1) of evaluating a selection
+         * @param queueCapacity max number of sampled selections waiting for evaluation (extra ones are dropped)
+         */
+        public Builder candidate(List<ProxyServer> servers, double sampleRate, int queueCapacity) {
+            this.candidateServers = new ArrayList<>(servers);
+            this.candidateSampleRate = sampleRate;
+            this.candidateQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Tracks the {@code topK} hosts most selected through each proxy (the proxy tried first) over windows of the
+         * given duration, with a fixed-memory sketch per proxy (see {@link #getTopDestinations()}). Default: {@code 0}
+         * (disabled).
+         */
+        public Builder heavyHitters(int topK, Duration window) {
+            this.heavyHittersTopK = topK;
+            this.heavyHittersWindow = window;
+            return this;
+        }
+
+        /**
+         * Builds the selector (and starts health checks, host list files watching and candidate rules evaluation, if
+         * enabled)
+         *
+         * @throws IllegalArgumentException if a server is misconfigured
+         */
+        public MultiProxySelector build() {
+            validateOptions();
+            MultiProxySelector selector = buildSelector();
+            try {
+                if (heavyHittersTopK > 0) {
+                    Map<Proxy, DestinationSketch> sketches = new HashMap<>();
+                    for (Proxy proxy : selector.proxy2Stats.keySet()) {
+                        sketches.put(proxy, new DestinationSketch(heavyHittersTopK, heavyHittersWindow.toNanos()));
+                    }
+                    selector.destinationSketches = sketches;
+                }
+                if (candidateServers != null) {
+                    selector.candidateEvaluation = buildCandidateEvaluation(selector);
+                }
+                if (healthCheckInterval != null) {
+                    LOGGER.info("Starting proxies health checks every {}", healthCheckInterval);
+                    selector.healthChecker = new ProxyHealthChecker(selector.getProxyStats(), healthCheckInterval, healthCheckTimeout);
+                }
+                if (watchHostLists && !selector.hostLists.isEmpty()) {
+                    try {
+                        selector.fileWatcher = new FileWatcher();
+                        selector.watchHostLists(selector.fileWatcher);
+                    } catch (IOException e) {
+                        LOGGER.warn("Could not watch host list files: they won't be reloaded", e);
+                    }
+                }
+            } catch (RuntimeException e) {
+                // stop whatever was already started (candidate rules evaluation thread, health checks)
+                try {
+                    selector.close();
+                } catch (IOException closeError) {
+                    e.addSuppressed(closeError);
+                }
+                throw e;
+            }
+            return selector;
+        }
+
+        /**
+         * Validates the selector options before anything gets allocated or started (servers are validated while being
+         * built)
+         */
+        private void validateOptions() {
+            if (offHeapCacheSize < 0) {
+                throw new IllegalArgumentException("offHeapCache can't be negative.");
+            }
+            if (offHeapCacheSize > OffHeapSelectionCache.MAX_ENTRIES) {
+                throw new IllegalArgumentException("offHeapCache can't exceed " + OffHeapSelectionCache.MAX_ENTRIES + ".");
+            }
+            if (heavyHittersTopK < 0) {
+                throw new IllegalArgumentException("heavyHitters topK can't be negative.");
+            }
+            if (heavyHittersTopK > 0 && (heavyHittersWindow == null || heavyHittersWindow.isNegative() || heavyHittersWindow.isZero())) {
+                throw new IllegalArgumentException("heavyHitters window must be positive.");
+            }
+            if (candidateServers != null) {
+                if (candidateSampleRate < 0 || candidateSampleRate > 1) {
+                    throw new IllegalArgumentException("candidate sampleRate must be between 0 and 1.");
+                }
+                if (candidateQueueCapacity <= 0) {
+                    throw new IllegalArgumentException("candidate queueCapacity must be positive.");
+                }
+            }
+            if (explorationRate < 0 || explorationRate > 1) {
+                throw new IllegalArgumentException("explorationRate must be between 0 and 1.");
+            }
+            if (healthCheckInterval != null) {
+                // scheduled in millis: a shorter interval can't be scheduled, a zero timeout waits forever
+                if (healthCheckInterval.toMillis() <= 0) {
+                    throw new IllegalArgumentException("healthCheck interval must be positive.");
+                }
+                if (healthCheckTimeout == null || healthCheckTimeout.toMillis() <= 0) {
+                    throw new IllegalArgumentException("healthCheck timeout must be positive.");
+                }
+            }
+        }
+
+        private CandidateRulesEvaluation buildCandidateEvaluation(MultiProxySelector selector) {
+            Builder candidateBuilder = new Builder()
+                    .servers(candidateServers)
+                    .explorationRate(explorationRate)
+                    .linearTimeRegex(linearTimeRegex)
+                    .compiledRules(compiledRules);
+            MultiProxySelector candidate;
+            try {
+                candidate = candidateBuilder.buildSelector();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("candidate " + e.getMessage(), e);
+            }
+            LOGGER.info("Evaluating {} candidate servers on {}% of selections", candidateServers.size(), candidateSampleRate * 100);
+            return new CandidateRulesEvaluation(selector, candidate, candidateSampleRate, candidateQueueCapacity);
+        }
+
+        private MultiProxySelector buildSelector() {
+            List<ProxyEntry> proxyEntries = new ArrayList<>();
+            Map<Proxy, ProxyStats> proxy2Stats = new LinkedHashMap<>();
+            List<HostListMatcher> hostLists = new ArrayList<>();
+            Set<Proxy> remoteDnsProxies = new HashSet<>();
+            for (int i = 0; i < servers.size(); i++) {
+                ProxyServer cfg = servers.get(i);
+
+                if (cfg.getHost() == null || cfg.getHost().length() == 0) {
+                    throw new IllegalArgumentException("servers[" + i + "].host can't be null or empty.");
+                }
+
+                if (cfg.getPort() < 0 || cfg.getPort() > 0xFFFF) {
+                    throw new IllegalArgumentException("servers[" + i + "].port must be a valid port.");
+                }
+
+                int countMatchers = (cfg.getForHosts().isEmpty() && cfg.getForHostsFiles().isEmpty() ? 0 : 1) + (cfg.getNotForHosts().isEmpty() && cfg.getNotForHostsFiles().isEmpty() ? 0 : 1);
+                if (countMatchers == 0) {
+                    throw new IllegalArgumentException("servers[" + i + "] must define either '.forHosts' or '.notForHosts' matchers in configuration.");
+                } else if (countMatchers > 1) {
+                    throw new IllegalArgumentException("servers[" + i + "] you can't specify both '.forHosts' and '.notForHosts' matchers in configuration.");
+                }
+
+                // parse matchers
+                List<HostnameMatcher> positiveMatchers;
+                try {
+                    positiveMatchers = cfg.getForHosts().stream().map(matcher -> HostnameMatcher.parse(matcher, linearTimeRegex)).collect(Collectors.toCollection(ArrayList::new));
+                } catch (PatternSyntaxException pte) {
+                    throw new IllegalArgumentException("servers[" + i + "].forHosts contains an invalid or unsupported pattern: " + pte.getDescription(), pte);
+                }
+                List<HostnameMatcher> negativeMatchers;
+                try {
+                    negativeMatchers = cfg.getNotForHosts().stream().map(matcher -> HostnameMatcher.parse(matcher, linearTimeRegex)).collect(Collectors.toCollection(ArrayList::new));
+                } catch (PatternSyntaxException pte) {
+                    throw new IllegalArgumentException("servers[" + i + "].notForHosts contains an invalid or unsupported pattern: " + pte.getDescription(), pte);
+                }
+
+                // load host list files
+                for (int j = 0; j < cfg.getForHostsFiles().size(); j++) {
+                    HostListMatcher hostList = readHostList(cfg.getForHostsFiles().get(j), "servers[" + i + "].forHostsFiles[" + j + "]");
+                    positiveMatchers.add(hostList);
+                    hostLists.add(hostList);
+                }
+                for (int j = 0; j < cfg.getNotForHostsFiles().size(); j++) {
+                    HostListMatcher hostList = readHostList(cfg.getNotForHostsFiles().get(j), "servers[" + i + "].notForHostsFiles[" + j + "]");
+                    negativeMatchers.add(hostList);
+                    hostLists.add(hostList);
+                }
+
+                // make proxies (main one first, then alternates)
+                Proxy.Type type = cfg.getType();
+                if (type == Proxy.Type.DIRECT) {
+                    throw new IllegalArgumentException("servers[" + i + "].type must be HTTP or SOCKS.");
+                }
+                List<ProxyStats> candidates = new ArrayList<>();
+                candidates.add(proxy2Stats.computeIfAbsent(new Proxy(type, new InetSocketAddress(cfg.getHost(), cfg.getPort())), ProxyStats::new));
+                for (int j = 0; j < cfg.getAlternates().size(); j++) {
+                    InetSocketAddress address = ProxyServer.parseAddress(cfg.getAlternates().get(j));
+                    if (address == null) {
+                        throw new IllegalArgumentException("servers[" + i + "].alternates[" + j + "] must be formatted as 'host:port'.");
+                    }
+                    candidates.add(proxy2Stats.computeIfAbsent(new Proxy(type, address), ProxyStats::new));
+                }
+                if (cfg.isRemoteDns()) {
+                    if (type != Proxy.Type.SOCKS) {
+                        throw new IllegalArgumentException("servers[" + i + "].remoteDns requires a SOCKS proxy.");
+                    }
+                    for (ProxyStats candidate : candidates) {
+                        remoteDnsProxies.add(candidate.getProxy());
+                    }
+                }
+                if (cfg.getMaxConcurrentConnections() < 0) {
+                    throw new IllegalArgumentException("servers[" + i + "].maxConcurrentConnections can't be negative.");
+                }
+                for (ProxyStats candidate : candidates) {
+                    candidate.limitConcurrentConnections(cfg.getMaxConcurrentConnections());
+                }
+                ProxyEntry entry = new ProxyEntry(cfg, candidates, positiveMatchers, negativeMatchers, explorationRate, parseFallback(cfg.getFallback()));
+                entry.index = proxyEntries.size();
+                proxyEntries.add(entry);
+            }
+
+            // resolve fallback servers
+            for (int i = 0; i < proxyEntries.size(); i++) {
+                ProxyEntry entry = proxyEntries.get(i);
+                if (entry.fallback == Fallback.SERVER) {
+                    int index = i;
+                    String name = entry.cfg.getFallback();
+                    entry.fallbackEntry = proxyEntries.stream()
+                            .filter(e -> name.equals(e.cfg.getName()))
+                            .findFirst()
+                            .orElseThrow(() -> new IllegalArgumentException("servers[" + index + "].fallback references an unknown server '" + name + "'."));
+                }
+            }
+            for (int i = 0; i < proxyEntries.size(); i++) {
+                Set<ProxyEntry> visited = new HashSet<>();
+                for (ProxyEntry entry = proxyEntries.get(i); entry != null; entry = entry.fallbackEntry) {
+                    if (!visited.add(entry)) {
+                        throw new IllegalArgumentException("servers[" + i + "].fallback makes a cycle.");
+                    }
+                }
+            }
+
+            CompiledRules rules = null;
+            if (compiledRules) {
+                CompiledRules.Builder rulesBuilder = new CompiledRules.Builder();
+                for (ProxyEntry entry : proxyEntries) {
+                    boolean positive = !entry.positiveMatchers.isEmpty();
+                    rulesBuilder.add(entry.cfg.getForProtocols(), positive ? entry.positiveMatchers : entry.negativeMatchers, positive);
+                }
+                rules = rulesBuilder.build();
+                LOGGER.info("Compiled {} servers rules into {} nodes", proxyEntries.size(), rules.size());
+            }
+            OffHeapSelectionCache cache = null;
+            if (offHeapCacheSize > 0) {
+                cache = new OffHeapSelectionCache(offHeapCacheSize);
+                LOGGER.info("Using an off-heap selection cache of {} hosts ({} bytes)", offHeapCacheSize, cache.sizeInBytes());
+            }
+            return new MultiProxySelector(proxyEntries, proxy2Stats, hostLists, remoteDnsProxies, rules, cache);
+        }
+    }
+
+    private static HostListMatcher readHostList(String path, String property) {
+        try {
+            return new HostListMatcher(Paths.get(path));
+        } catch (IOException | InvalidPathException e) {
+            throw new IllegalArgumentException(property + " can't be read: " + path, e);
+        }
+    }
+
+    /**
+     * Parses a server fallback: {@code none} (or {@code null}), {@code direct}, {@code fail-fast} or another server name
+     */
+    static Fallback parseFallback(String fallback) {
+        if (fallback == null || fallback.equalsIgnoreCase("none")) {
+            return Fallback.NONE;
+        } else if (fallback.equalsIgnoreCase("direct")) {
+            return Fallback.DIRECT;
+        } else if (fallback.equalsIgnoreCase("fail-fast")) {
+            return Fallback.FAIL_FAST;
+        } else {
+            return Fallback.SERVER;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.PasswordAuthentication;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * This is an {@link Authenticator} implementation able to manage several servers
+ * <p>
+ * Thread-safe: servers may be added while other threads are being authenticated.
+ * <p>
+ * The JDK caches accepted credentials, so the authenticator is only challenged again for a server when the previous
+ * credentials were rejected (407 loop). When a server challenges more than {@code maxChallenges} times within
+ * {@code window}, its credentials are considered invalid and are withheld during {@code backoff}: connections then
+ * fail immediately with a 407 instead of retrying over and over.
+ * <p>
+ * Credentials may also be read from files (e.g. mounted secrets), and are then reloaded whenever the files change:
+ * {@link #close() closing} the authenticator stops watching them.
+ */
+public class MultiServerAuthenticator extends Authenticator implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiServerAuthenticator.class);
+
+    public static final int DEFAULT_MAX_CHALLENGES = 10;
+    public static final Duration DEFAULT_WINDOW = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_BACKOFF = Duration.ofSeconds(30);
+
+    /**
+     * Notified whenever a server enters the backoff state
+     */
+    @FunctionalInterface
+    public interface BackoffListener {
+        void onBackoff(String host, ChallengeStats stats);
+    }
+
+    private enum Outcome {ALLOW, WITHHOLD, ENTER_BACKOFF}
+
+    /**
+     * Authentication challenges statistics for one server
+     */
+    public static class ChallengeStats {
+        private final LongAdder challenges = new LongAdder();
+        private final LongAdder backoffs = new LongAdder();
+        private final LongAdder withheld = new LongAdder();
+        private long windowStart;
+        private int windowChallenges;
+        private volatile long backoffUntil;
+        private volatile boolean backingOff;
+
+        /**
+         * Total number of authentication challenges
+         */
+        public long getChallenges() {
+            return challenges.sum();
+        }
+
+        /**
+         * Number of times the server entered the backoff state
+         */
+        public long getBackoffs() {
+            return backoffs.sum();
+        }
+
+        /**
+         * Number of challenges answered without credentials because of the backoff state
+         */
+        public long getWithheld() {
+            return withheld.sum();
+        }
+
+        /**
+         * Whether the credentials are currently withheld
+         */
+        public boolean isBackingOff() {
+            return backingOff;
+        }
+
+        private synchronized Outcome onChallenge(long now, int maxChallenges, long windowNanos, long backoffNanos) {
+            challenges.increment();
+            if (backingOff) {
+                if (now - backoffUntil < 0) {
+                    withheld.increment();
+                    return Outcome.WITHHOLD;
+                }
+                // backoff elapsed: give the credentials another chance
+                backingOff = false;
+                windowChallenges = 0;
+            }
+            if (windowChallenges == 0 || now - windowStart > windowNanos) {
+                windowStart = now;
+                windowChallenges = 0;
+            }
+            windowChallenges++;
+            if (maxChallenges > 0 && windowChallenges > maxChallenges) {
+                backingOff = true;
+                backoffUntil = now + backoffNanos;
+                backoffs.increment();
+                withheld.increment();
+                return Outcome.ENTER_BACKOFF;
+            }
+            return Outcome.ALLOW;
+        }
+
+        private synchronized void reset() {
+            backingOff = false;
+            windowChallenges = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "ChallengeStats{" +
+                    "challenges=" + getChallenges() +
+                    ", backoffs=" + getBackoffs() +
+                    ", withheld=" + getWithheld() +
+                    ", backingOff=" + backingOff +
+                    '}';
+        }
+    }
+
+    private final Map<String, PasswordAuthentication> host2Authent = new ConcurrentHashMap<>();
+    private final Map<String, ChallengeStats> host2Stats = new ConcurrentHashMap<>();
+    private final int maxChallenges;
+    private final long windowNanos;
+    private final long backoffNanos;
+    private final LongSupplier nanoClock;
+    private volatile BackoffListener backoffListener;
+    private FileWatcher fileWatcher;
+
+    public MultiServerAuthenticator() {
+        this(DEFAULT_MAX_CHALLENGES, DEFAULT_WINDOW, DEFAULT_BACKOFF);
+    }
+
+    /**
+     * @param maxChallenges max number of challenges for one server within {@code window} ({@code 0} disables backoff)
+     * @param window        duration over which challenges are counted
+     * @param backoff       duration during which credentials are withheld
+     */
+    public MultiServerAuthenticator(int maxChallenges, Duration window, Duration backoff) {
+        this(maxChallenges, window, backoff, System::nanoTime);
+    }
+
+    MultiServerAuthenticator(int maxChallenges, Duration window, Duration backoff, LongSupplier nanoClock) {
+        this.maxChallenges = maxChallenges;
+        this.windowNanos = window.toNanos();
+        this.backoffNanos = backoff.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public void add(String host, String user, String password) {
+        // new credentials deserve a new chance (stats are registered first: authenticated hosts always have stats)
+        host2Stats.computeIfAbsent(host, h -> new ChallengeStats()).reset();
+        host2Authent.put(host, new PasswordAuthentication(user, password.toCharArray()));
+    }
+
+    /**
+     * Adds credentials read from files (e.g. mounted secrets), reloaded whenever the files change
+     * <p>
+     * Rotated credentials atomically replace the previous ones (and get a new chance, like with
+     * {@link #add(String, String, String)}). Trailing line breaks are ignored. While the files are missing, empty or
+     * unreadable (e.g. during a rotation), the previous credentials are kept.
+     *
+     * @param host         the proxy ({@code host:port})
+     * @param user         the username (ignored if {@code usernameFile} is set)
+     * @param usernameFile optional file containing the username
+     * @param passwordFile file containing the password
+     * @throws IOException if the files can't be read or watched
+     */
+    public void addFromFiles(String host, String user, Path usernameFile, Path passwordFile) throws IOException {
+        String username = usernameFile == null ? user : readSecret(usernameFile);
+        add(host, username, readSecret(passwordFile));
+        Runnable reload = () -> reloadFromFiles(host, user, usernameFile, passwordFile);
+        FileWatcher watcher = getFileWatcher();
+        watcher.register(passwordFile, reload);
+        if (usernameFile != null) {
+            watcher.register(usernameFile, reload);
+        }
+    }
+
+    private void reloadFromFiles(String host, String user, Path usernameFile, Path passwordFile) {
+        String username;
+        String password;
+        try {
+            username = usernameFile == null ? user : readSecret(usernameFile);
+            password = readSecret(passwordFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not reload proxy credentials for <{}>: keeping previous ones ({})", host, e.toString());
+            return;
+        }
+        PasswordAuthentication current = host2Authent.get(host);
+        if (current != null && current.getUserName().equals(username) && Arrays.equals(current.getPassword(), password.toCharArray())) {
+            return;
+        }
+        add(host, username, password);
+        LOGGER.info("Proxy credentials for <{}> reloaded: {}/***", host, username);
+    }
+
+    private static String readSecret(Path file) throws IOException {
+        String secret = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        int end = secret.length();
+        while (end > 0 && (secret.charAt(end - 1) == '\n' || secret.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        if (end == 0) {
+            throw new IOException("Empty file: " + file);
+        }
+        return secret.substring(0, end);
+    }
+
+    private synchronized FileWatcher getFileWatcher() throws IOException {
+        if (fileWatcher == null) {
+            fileWatcher = new FileWatcher();
+        }
+        return fileWatcher;
+    }
+
+    /**
+     * Stops watching credentials files (if any)
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (fileWatcher != null) {
+            fileWatcher.close();
+            fileWatcher = null;
+        }
+    }
+
+    public void setBackoffListener(BackoffListener backoffListener) {
+        this.backoffListener = backoffListener;
+    }
+
+    @Override
+    protected PasswordAuthentication getPasswordAuthentication() {
+        return authenticate("" + getRequestingHost() + ":" + getRequestingPort());
+    }
+
+    /**
+     * Answers an authentication challenge from the given proxy (for HTTP clients not using {@link Authenticator})
+     * <p>
+     * Challenges are counted: credentials are withheld while the proxy is backing off.
+     *
+     * @param host the proxy ({@code host:port})
+     * @return the credentials, or {@code null} if none or withheld
+     */
+    public PasswordAuthentication authenticate(String host) {
+        Object event = ProxyEvents.beginAuthentication();
+        PasswordAuthentication passwordAuthentication = host2Authent.get(host);
+        if (passwordAuthentication == null) {
+            LOGGER.trace("using proxy authentication for <{}>: none", host);
+            ProxyEvents.commitAuthentication(event, host, null, "none");
+            return null;
+        }
+        ChallengeStats stats = host2Stats.get(host);
+        Outcome outcome = stats.onChallenge(nanoClock.getAsLong(), maxChallenges, windowNanos, backoffNanos);
+        if (outcome == Outcome.ENTER_BACKOFF) {
+            LOGGER.warn("Proxy authentication storm for <{}>: more than {} challenges within {} ms, credentials of '{}' withheld for {} ms",
+                    host, maxChallenges, TimeUnit.NANOSECONDS.toMillis(windowNanos), passwordAuthentication.getUserName(), TimeUnit.NANOSECONDS.toMillis(backoffNanos));
+            BackoffListener listener = backoffListener;
+            if (listener != null) {
+                listener.onBackoff(host, stats);
+            }
+        }
+        ProxyEvents.commitAuthentication(event, host, passwordAuthentication.getUserName(), outcome == Outcome.ALLOW ? "provided" : "withheld");
+        if (outcome != Outcome.ALLOW) {
+            LOGGER.trace("using proxy authentication for <{}>: withheld (backoff)", host);
+            return null;
+        }
+        LOGGER.trace("using proxy authentication for <{}>: {}/***", host, passwordAuthentication.getUserName());
+        return passwordAuthentication;
+    }
+
+    /**
+     * Returns the credentials of the given proxy, for preemptive authentication (not counted as a challenge)
+     *
+     * @param host the proxy ({@code host:port})
+     * @return the credentials, or {@code null} if none or withheld
+     */
+    public PasswordAuthentication getCredentials(String host) {
+        PasswordAuthentication passwordAuthentication = host2Authent.get(host);
+        ChallengeStats stats = host2Stats.get(host);
+        return passwordAuthentication == null || stats == null || stats.isBackingOff() ? null : passwordAuthentication;
+    }
+
+    /**
+     * Returns the authentication challenges statistics, per server ({@code host:port})
+     */
+    public Map<String, ChallengeStats> getChallengeStats() {
+        return Collections.unmodifiableMap(host2Stats);
+    }
+
+    public int size() {
+        return host2Authent.size();
+    }
+}
@@ -0,0 +1,335 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Bounded selection cache stored off-heap, for very high host cardinalities (see
+ * {@link MultiProxySelector.Builder#offHeapCache(int)})
+ * <p>
+ * Maps the scheme and hostname to the index of the selected server through two independent hashes (64 and 32 bits):
+ * hostnames themselves are not stored, so the heap footprint doesn't depend on the number of cached hosts. An entry is
+ * only returned when both hashes match, so that another host's server (possibly one the host is excluded from) would
+ * only be returned on a 96-bit collision (~10<sup>-20</sup> per selection with a billion cached hosts).
+ * <p>
+ * The cache is split into segments (selected by the hash high bits), each one being a direct {@link ByteBuffer}
+ * of 16-byte slots (64-bit hash, 32-bit hash, reference flag and server index) with open addressing (linear probing,
+ * backward shift deletion). Writes take the segment {@link StampedLock write lock}; reads are optimistic (validated
+ * against concurrent writes, and retried under the read lock if a write happened meanwhile), so hits don't contend.
+ * When a segment is full, entries are evicted with the CLOCK algorithm: entries are inserted unreferenced and flagged
+ * on every hit, so that hosts seen once are evicted before recurring ones. Hits set the reference flag without any
+ * lock: the flag is a byte of its own, so a racing write can at worst lose the flag or set it on another entry (a
+ * slightly less accurate eviction), never alter a server index.
+ */
+final class OffHeapSelectionCache {
+    /**
+     * Returned by {@link #get(long, int)} when the key is not cached
+     */
+    static final int MISS = Integer.MIN_VALUE;
+
+    private static final int SLOT_SIZE = 16;
+    // slot layout: 64-bit hash, 32-bit hash, reference flag (1 byte), server index + 1 (3 bytes)
+    private static final int CHECK_OFFSET = 8;
+    private static final int VALUE_OFFSET = 12;
+    private static final int INDEX_MASK = 0x00ff_ffff;
+    private static final byte REFERENCED = 1;
+    private static final double LOAD_FACTOR = 0.75;
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MAX_SEGMENT_SLOTS = 1 << 24;
+
+    /**
+     * Max number of cached hosts (~800 millions, 16 GiB of direct memory)
+     */
+    static final int MAX_ENTRIES = (int) (MAX_SEGMENTS * (MAX_SEGMENT_SLOTS * LOAD_FACTOR));
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * @param maxEntries max number of cached hosts (at most {@link #MAX_ENTRIES})
+     */
+    OffHeapSelectionCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive.");
+        }
+        if (maxEntries > MAX_ENTRIES) {
+            throw new IllegalArgumentException("maxEntries can't exceed " + MAX_ENTRIES + ".");
+        }
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maxEntries / 1024)));
+        int entriesPerSegment = (maxEntries + segmentCount - 1) / segmentCount;
+        int slots = Integer.highestOneBit((int) Math.ceil(entriesPerSegment / LOAD_FACTOR) * 2 - 1);
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(slots, entriesPerSegment);
+        }
+        segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * Hashes a (lower-case) scheme and (canonical) hostname into a non-zero cache key
+     */
+    static long hash(String protocol, String host) {
+        // FNV-1a, then a 64-bit finalizer (murmur3 fmix64) to spread the low bits
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < protocol.length(); i++) {
+            h = (h ^ protocol.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ ':') * 0x100000001b3L;
+        for (int i = 0; i < host.length(); i++) {
+            h = (h ^ host.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Hashes a (lower-case) scheme and (canonical) hostname into a check value, independent of {@link #hash}
+     */
+    static int check(String protocol, String host) {
+        // polynomial hash (other multiplier than String.hashCode()), then a 32-bit finalizer (murmur3 fmix32)
+        int h = 0x9747b28c;
+        for (int i = 0; i < protocol.length(); i++) {
+            h = h * 0x01000193 + protocol.charAt(i);
+        }
+        h = h * 0x01000193 + ':';
+        for (int i = 0; i < host.length(); i++) {
+            h = h * 0x01000193 + host.charAt(i);
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Returns the cached server index (or {@code -1} for direct connections), or {@link #MISS}
+     */
+    int get(long key, int check) {
+        return segment(key).get(key, check);
+    }
+
+    /**
+     * Caches a server index ({@code -1} for direct connections), evicting another entry if needed
+     */
+    void put(long key, int check, int index) {
+        if (index < -1 || index >= INDEX_MASK) {
+            throw new IllegalArgumentException("index out of range: " + index);
+        }
+        segment(key).put(key, check, index);
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the number of cached entries
+     */
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of evicted entries
+     */
+    long getEvictions() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            evictions += segment.evictions();
+        }
+        return evictions;
+    }
+
+    /**
+     * Returns the off-heap memory used by the cache (in bytes)
+     */
+    long sizeInBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.buffer.capacity();
+        }
+        return bytes;
+    }
+
+    private Segment segment(long key) {
+        return segments.length == 1 ? segments[0] : segments[(int) (key >>> segmentShift)];
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final ByteBuffer buffer;
+        private final int mask;
+        private final int maxEntries;
+        private int size;
+        private int hand;
+        private long evictions;
+
+        Segment(int slots, int maxEntries) {
+            this.buffer = ByteBuffer.allocateDirect(slots * SLOT_SIZE);
+            this.mask = slots - 1;
+            this.maxEntries = Math.min(maxEntries, slots - 1);
+        }
+
+        int get(long key, int check) {
+            long stamp = lock.tryOptimisticRead();
+            int index = lookup(key, check);
+            if (!lock.validate(stamp)) {
+                // entries were written meanwhile (and may have been shifted): read again, consistently
+                stamp = lock.readLock();
+                try {
+                    index = lookup(key, check);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Returns the cached server index (flagging the entry as referenced), or {@link #MISS}
+         */
+        private int lookup(long key, int check) {
+            // bounded, as a racing write may show an inconsistent table (the result is then discarded)
+            for (int probes = 0, slot = (int) key & mask; probes <= mask; probes++, slot = (slot + 1) & mask) {
+                int offset = slot * SLOT_SIZE;
+                long k = buffer.getLong(offset);
+                if (k == 0) {
+                    return MISS;
+                }
+                if (k == key && buffer.getInt(offset + CHECK_OFFSET) == check) {
+                    int value = buffer.getInt(offset + VALUE_OFFSET);
+                    if (value >>> 24 != REFERENCED) {
+                        // benign race (see class comment)
+                        buffer.put(offset + VALUE_OFFSET, REFERENCED);
+                    }
+                    return (value & INDEX_MASK) - 1;
+                }
+            }
+            return MISS;
+        }
+
+        void put(long key, int check, int index) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = find(key, check);
+                int offset = slot * SLOT_SIZE;
+                if (buffer.getLong(offset) == key && buffer.getInt(offset + CHECK_OFFSET) == check) {
+                    buffer.putInt(offset + VALUE_OFFSET, (buffer.getInt(offset + VALUE_OFFSET) & ~INDEX_MASK) | (index + 1));
+                    return;
+                }
+                if (size >= maxEntries) {
+                    evict();
+                    // entries may have been shifted
+                    offset = find(key, check) * SLOT_SIZE;
+                }
+                buffer.putLong(offset, key);
+                buffer.putInt(offset + CHECK_OFFSET, check);
+                buffer.putInt(offset + VALUE_OFFSET, index + 1);
+                size++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Returns the slot holding {@code key}, or the empty slot where it would be inserted
+         */
+        private int find(long key, int check) {
+            for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+                long k = buffer.getLong(slot * SLOT_SIZE);
+                if (k == 0 || k == key && buffer.getInt(slot * SLOT_SIZE + CHECK_OFFSET) == check) {
+                    return slot;
+                }
+            }
+        }
+
+        /**
+         * CLOCK: clears the reference flag of referenced entries until an unreferenced one is found, and removes it
+         */
+        private void evict() {
+            while (true) {
+                int slot = hand;
+                int offset = slot * SLOT_SIZE;
+                if (buffer.getLong(offset) != 0) {
+                    if (buffer.get(offset + VALUE_OFFSET) != REFERENCED) {
+                        remove(slot);
+                        evictions++;
+                        // keep the hand here: another entry may have been shifted into this slot
+                        return;
+                    }
+                    buffer.put(offset + VALUE_OFFSET, (byte) 0);
+                }
+                hand = (slot + 1) & mask;
+            }
+        }
+
+        /**
+         * Removes the entry at {@code slot}, shifting back the following entries of the probe sequence
+         */
+        private void remove(int slot) {
+            int hole = slot;
+            for (int next = (hole + 1) & mask; ; next = (next + 1) & mask) {
+                long k = buffer.getLong(next * SLOT_SIZE);
+                if (k == 0) {
+                    break;
+                }
+                int home = (int) k & mask;
+                // the entry at 'next' can't move before its home slot
+                boolean stays = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+                if (!stays) {
+                    buffer.putLong(hole * SLOT_SIZE, k);
+                    buffer.putInt(hole * SLOT_SIZE + CHECK_OFFSET, buffer.getInt(next * SLOT_SIZE + CHECK_OFFSET));
+                    buffer.putInt(hole * SLOT_SIZE + VALUE_OFFSET, buffer.getInt(next * SLOT_SIZE + VALUE_OFFSET));
+                    hole = next;
+                }
+            }
+            buffer.putLong(hole * SLOT_SIZE, 0);
+            buffer.putInt(hole * SLOT_SIZE + CHECK_OFFSET, 0);
+            buffer.putInt(hole * SLOT_SIZE + VALUE_OFFSET, 0);
+            size--;
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                for (int i = 0; i < buffer.capacity(); i += 8) {
+                    buffer.putLong(i, 0);
+                }
+                size = 0;
+                hand = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long evictions() {
+            long stamp = lock.readLock();
+            try {
+                return evictions;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
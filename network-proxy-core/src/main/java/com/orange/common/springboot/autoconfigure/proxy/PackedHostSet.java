@@ -0,0 +1,173 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-compact, immutable set of host or domain names, supporting the same semantics as
+ * {@link HostnameMatcher.HostOrDomainMatcher}
+ * <p>
+ * Entries are stored reversed (e.g. {@code orange.com} is stored as {@code moc.egnaro}), sorted and packed into a
+ * single byte array with an offsets array: ~1 byte per character instead of one {@link HostnameMatcher} (and its
+ * {@link String}) per entry. A lookup performs one binary search per label of the tested hostname.
+ * <ul>
+ * <li>{@code orange.com} matches {@code orange.com} and any subdomain,</li>
+ * <li>{@code .orange.com} (or {@code *.orange.com}) matches subdomains only (stored with a trailing dot).</li>
+ * </ul>
+ */
+class PackedHostSet {
+    static final PackedHostSet EMPTY = new PackedHostSet(new byte[0], new int[]{0});
+
+    private final byte[] data;
+    private final int[] offsets;
+
+    private PackedHostSet(byte[] data, int[] offsets) {
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns the number of entries
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the number of bytes used to store the entries
+     */
+    long sizeInBytes() {
+        return data.length + 4L * offsets.length;
+    }
+
+    boolean matches(String hostname) {
+        int len = hostname.length();
+        if (len == 0 || size() == 0) {
+            return false;
+        }
+        byte[] reversed = new byte[len];
+        for (int i = 0; i < len; i++) {
+            char c = hostname.charAt(len - 1 - i);
+            if (c >= 0x80) {
+                // non-ASCII hostnames can't match ASCII entries
+                return false;
+            }
+            reversed[i] = (byte) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+        }
+        for (int end = 1; end <= len; end++) {
+            if (end == len || reversed[end] == '.') {
+                // host or domain entry ending at a label boundary
+                if (contains(reversed, end)) {
+                    return true;
+                }
+                // domain-only entry (with trailing dot)
+                if (end < len && contains(reversed, end + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean contains(byte[] key, int keyLen) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, key, keyLen);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int compare(int entry, byte[] key, int keyLen) {
+        int from = offsets[entry];
+        int entryLen = offsets[entry + 1] - from;
+        int len = Math.min(entryLen, keyLen);
+        for (int i = 0; i < len; i++) {
+            int cmp = (data[from + i] & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return entryLen - keyLen;
+    }
+
+    /**
+     * Incrementally builds a {@link PackedHostSet}
+     */
+    static class Builder {
+        private final List<byte[]> entries = new ArrayList<>();
+
+        /**
+         * Adds a host or domain entry
+         *
+         * @param entry hostname (e.g. {@code orange.com}) or domain ({@code .orange.com} or {@code *.orange.com})
+         * @return {@code false} if the entry is not supported (wildcards in the middle, regex, invalid IDN)
+         */
+        boolean add(String entry) {
+            String value = entry.trim();
+            if (value.startsWith("*.")) {
+                value = value.substring(1);
+            }
+            if (value.isEmpty() || value.equals(".") || value.indexOf('*') >= 0 || value.indexOf('/') >= 0) {
+                return false;
+            }
+            value = HostNames.canonicalizeHostOrDomain(value);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length != value.length()) {
+                return false;
+            }
+            byte[] reversed = new byte[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                reversed[i] = bytes[bytes.length - 1 - i];
+            }
+            entries.add(reversed);
+            return true;
+        }
+
+        PackedHostSet build() {
+            entries.sort(Builder::compare);
+            int size = 0;
+            int count = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                if (i == 0 || compare(entries.get(i - 1), entries.get(i)) != 0) {
+                    size += entries.get(i).length;
+                    count++;
+                }
+            }
+            byte[] data = new byte[size];
+            int[] offsets = new int[count + 1];
+            int pos = 0;
+            int idx = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                if (i == 0 || compare(entries.get(i - 1), entries.get(i)) != 0) {
+                    byte[] entry = entries.get(i);
+                    offsets[idx++] = pos;
+                    System.arraycopy(entry, 0, data, pos, entry.length);
+                    pos += entry.length;
+                }
+            }
+            offsets[idx] = pos;
+            return new PackedHostSet(data, offsets);
+        }
+
+        private static int compare(byte[] a, byte[] b) {
+            int len = Math.min(a.length, b.length);
+            for (int i = 0; i < len; i++) {
+                int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return a.length - b.length;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.net.Proxy;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Java Flight Recorder events facade
+ * <p>
+ * The events are defined in the optional {@code network-proxy-jfr} module (Java 11+), loaded reflectively when it is
+ * on the classpath and JFR is available: this module doesn't reference any {@code jdk.jfr} class, so that it builds
+ * and runs on any Java 8 JVM. Otherwise (or when the {@code network.proxy.jfr.disabled} system property is
+ * {@code true}), events are disabled and cost a single null check.
+ * <p>
+ * Each {@code begin} method returns an opaque event (or {@code null} when the event is disabled in the running
+ * recordings), to be passed to the matching {@code commit} method.
+ */
+final class ProxyEvents {
+    /**
+     * Events implementation, provided by the {@code network-proxy-jfr} module
+     */
+    interface Recorder {
+        Object beginSelect();
+
+        void commitSelect(Object event, String protocol, String host, boolean cacheHit, List<Proxy> proxies);
+
+        void connectFailed(URI uri, SocketAddress address, Exception failure);
+
+        Object beginAuthentication();
+
+        void commitAuthentication(Object event, String proxy, String user, String outcome);
+    }
+
+    static final String RECORDER_CLASS = "com.orange.common.springboot.autoconfigure.proxy.ProxyJfrEvents";
+
+    private static final Recorder RECORDER = Boolean.getBoolean("network.proxy.jfr.disabled") ? null : loadRecorder();
+
+    static final boolean ENABLED = RECORDER != null;
+
+    private ProxyEvents() {
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            ClassLoader classLoader = ProxyEvents.class.getClassLoader();
+            Class.forName("jdk.jfr.Event", false, classLoader);
+            return (Recorder) Class.forName(RECORDER_CLASS, true, classLoader).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            // no JFR, or no network-proxy-jfr module
+            return null;
+        }
+    }
+
+    static Object beginSelect() {
+        return RECORDER != null ? RECORDER.beginSelect() : null;
+    }
+
+    static void commitSelect(Object event, String protocol, String host, boolean cacheHit, List<Proxy> proxies) {
+        if (event != null) {
+            RECORDER.commitSelect(event, protocol, host, cacheHit, proxies);
+        }
+    }
+
+    static void connectFailed(URI uri, SocketAddress address, Exception failure) {
+        if (RECORDER != null) {
+            RECORDER.connectFailed(uri, address, failure);
+        }
+    }
+
+    static Object beginAuthentication() {
+        return RECORDER != null ? RECORDER.beginAuthentication() : null;
+    }
+
+    static void commitAuthentication(Object event, String proxy, String user, String outcome) {
+        if (event != null) {
+            RECORDER.commitAuthentication(event, proxy, user, outcome);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically probes every proxy with a TCP connection, and feeds the measured connect latency (or failure) into
+ * its {@link ProxyStats}
+ */
+class ProxyHealthChecker implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyHealthChecker.class);
+
+    private final Collection<ProxyStats> proxies;
+    private final int timeoutMillis;
+    private final ScheduledExecutorService scheduler;
+
+    ProxyHealthChecker(Collection<ProxyStats> proxies, Duration interval, Duration timeout) {
+        this.proxies = proxies;
+        this.timeoutMillis = (int) timeout.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "proxy-health-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::probeAll, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void probeAll() {
+        for (ProxyStats stats : proxies) {
+            probe(stats);
+        }
+    }
+
+    void probe(ProxyStats stats) {
+        InetSocketAddress address = (InetSocketAddress) stats.getProxy().address();
+        if (address.isUnresolved()) {
+            // proxy host could not be resolved at startup: retry resolution
+            address = new InetSocketAddress(address.getHostString(), address.getPort());
+        }
+        long start = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.connect(address, timeoutMillis);
+            stats.recordSuccess(System.nanoTime() - start);
+            LOGGER.trace("health probe succeeded: {}", stats);
+        } catch (IOException e) {
+            stats.recordFailure();
+            LOGGER.debug("health probe failed: {}", stats, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,294 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable proxy server rule: a proxy (and its alternates) and the hosts it shall be used for
+ * <p>
+ * Built with {@link #builder(String, int)}, then passed to {@link MultiProxySelector.Builder#server(ProxyServer)}:
+ * <pre>
+ * ProxyServer.builder("proxy.acme.com", 3128)
+ *         .alternates("proxy2.acme.com:3128")
+ *         .notForHosts("localhost", ".intranet.acme.com")
+ *         .fallback("direct")
+ *         .build();
+ * </pre>
+ */
+public class ProxyServer {
+    private final Proxy.Type type;
+    private final String name;
+    private final String host;
+    private final int port;
+    private final List<String> alternates;
+    private final List<String> forHosts;
+    private final List<String> notForHosts;
+    private final List<String> forHostsFiles;
+    private final List<String> notForHostsFiles;
+    private final List<String> forProtocols;
+    private final String fallback;
+    private final int maxConcurrentConnections;
+    private final boolean remoteDns;
+
+    private ProxyServer(Builder builder) {
+        this.type = builder.type;
+        this.name = builder.name;
+        this.host = builder.host;
+        this.port = builder.port;
+        this.alternates = Collections.unmodifiableList(new ArrayList<>(builder.alternates));
+        this.forHosts = Collections.unmodifiableList(new ArrayList<>(builder.forHosts));
+        this.notForHosts = Collections.unmodifiableList(new ArrayList<>(builder.notForHosts));
+        this.forHostsFiles = Collections.unmodifiableList(new ArrayList<>(builder.forHostsFiles));
+        this.notForHostsFiles = Collections.unmodifiableList(new ArrayList<>(builder.notForHostsFiles));
+        this.forProtocols = Collections.unmodifiableList(new ArrayList<>(builder.forProtocols));
+        this.fallback = builder.fallback;
+        this.maxConcurrentConnections = builder.maxConcurrentConnections;
+        this.remoteDns = builder.remoteDns;
+    }
+
+    /**
+     * Creates a builder for the given proxy
+     *
+     * @param host the proxy host
+     * @param port the proxy port
+     */
+    public static Builder builder(String host, int port) {
+        return new Builder(host, port);
+    }
+
+    public Proxy.Type getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public List<String> getAlternates() {
+        return alternates;
+    }
+
+    public List<String> getForHosts() {
+        return forHosts;
+    }
+
+    public List<String> getNotForHosts() {
+        return notForHosts;
+    }
+
+    public List<String> getForHostsFiles() {
+        return forHostsFiles;
+    }
+
+    public List<String> getNotForHostsFiles() {
+        return notForHostsFiles;
+    }
+
+    public List<String> getForProtocols() {
+        return forProtocols;
+    }
+
+    public String getFallback() {
+        return fallback;
+    }
+
+    /**
+     * Returns the max number of concurrent connections through each proxy ({@code 0} means unlimited)
+     */
+    public int getMaxConcurrentConnections() {
+        return maxConcurrentConnections;
+    }
+
+    /**
+     * Returns whether destination hostnames shall be resolved by the (SOCKS) proxy
+     */
+    public boolean isRemoteDns() {
+        return remoteDns;
+    }
+
+    /**
+     * Returns whether the given fallback references another server (by its name), rather than being {@code none},
+     * {@code direct} or {@code fail-fast}
+     */
+    public static boolean isServerFallback(String fallback) {
+        return MultiProxySelector.parseFallback(fallback) == MultiProxySelector.Fallback.SERVER;
+    }
+
+    /**
+     * Parses a {@code host:port} proxy address
+     *
+     * @return the (resolved if possible) address, or {@code null} if it can't be parsed
+     */
+    public static InetSocketAddress parseAddress(String hostAndPort) {
+        int idx = hostAndPort == null ? -1 : hostAndPort.lastIndexOf(':');
+        if (idx <= 0) {
+            return null;
+        }
+        try {
+            int port = Integer.parseInt(hostAndPort.substring(idx + 1));
+            return port < 0 || port > 0xFFFF ? null : new InetSocketAddress(hostAndPort.substring(0, idx), port);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ProxyServer{" +
+                "type=" + type +
+                ", name='" + name + '\'' +
+                ", host='" + host + '\'' +
+                ", port=" + port +
+                ", alternates=" + alternates +
+                ", forHosts=" + forHosts +
+                ", notForHosts=" + notForHosts +
+                ", forHostsFiles=" + forHostsFiles +
+                ", notForHostsFiles=" + notForHostsFiles +
+                ", forProtocols=" + forProtocols +
+                ", fallback='" + fallback + '\'' +
+                ", maxConcurrentConnections=" + maxConcurrentConnections +
+                ", remoteDns=" + remoteDns +
+                '}';
+    }
+
+    public static class Builder {
+        private Proxy.Type type = Proxy.Type.HTTP;
+        private String name;
+        private final String host;
+        private final int port;
+        private List<String> alternates = Collections.emptyList();
+        private List<String> forHosts = Collections.emptyList();
+        private List<String> notForHosts = Collections.emptyList();
+        private List<String> forHostsFiles = Collections.emptyList();
+        private List<String> notForHostsFiles = Collections.emptyList();
+        private List<String> forProtocols = Arrays.asList("http", "https", "ftp");
+        private String fallback;
+        private int maxConcurrentConnections;
+        private boolean remoteDns;
+
+        private Builder(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        /**
+         * The proxy type ({@link Proxy.Type#HTTP} or {@link Proxy.Type#SOCKS}). Default: {@link Proxy.Type#HTTP}.
+         */
+        public Builder type(Proxy.Type type) {
+            this.type = type;
+            return this;
+        }
+
+        /**
+         * Server name (used to reference it as another server's {@link #fallback(String) fallback})
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Alternate proxies ({@code host:port}) sharing this server's type and matchers
+         */
+        public Builder alternates(List<String> alternates) {
+            this.alternates = alternates;
+            return this;
+        }
+
+        public Builder alternates(String... alternates) {
+            return alternates(Arrays.asList(alternates));
+        }
+
+        /**
+         * Hosts this server shall be used for (exclusive with {@link #notForHosts(List)})
+         */
+        public Builder forHosts(List<String> forHosts) {
+            this.forHosts = forHosts;
+            return this;
+        }
+
+        public Builder forHosts(String... forHosts) {
+            return forHosts(Arrays.asList(forHosts));
+        }
+
+        /**
+         * Hosts this server shall not be used for (exclusive with {@link #forHosts(List)})
+         */
+        public Builder notForHosts(List<String> notForHosts) {
+            this.notForHosts = notForHosts;
+            return this;
+        }
+
+        public Builder notForHosts(String... notForHosts) {
+            return notForHosts(Arrays.asList(notForHosts));
+        }
+
+        /**
+         * Files listing the hosts this server shall be used for (one host or domain per line)
+         */
+        public Builder forHostsFiles(List<String> forHostsFiles) {
+            this.forHostsFiles = forHostsFiles;
+            return this;
+        }
+
+        /**
+         * Files listing the hosts this server shall not be used for (one host or domain per line)
+         */
+        public Builder notForHostsFiles(List<String> notForHostsFiles) {
+            this.notForHostsFiles = notForHostsFiles;
+            return this;
+        }
+
+        /**
+         * Protocols this server shall be used for. Default: {@code http}, {@code https} and {@code ftp}.
+         */
+        public Builder forProtocols(List<String> forProtocols) {
+            this.forProtocols = forProtocols;
+            return this;
+        }
+
+        /**
+         * What to do when all this server's proxies are unhealthy: {@code none} (default), {@code direct},
+         * {@code fail-fast} or the name of another server
+         */
+        public Builder fallback(String fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * Max number of concurrent connections through each proxy ({@code 0} means unlimited, the default)
+         */
+        public Builder maxConcurrentConnections(int maxConcurrentConnections) {
+            this.maxConcurrentConnections = maxConcurrentConnections;
+            return this;
+        }
+
+        /**
+         * Whether destination hostnames shall be sent unresolved to the proxy (and resolved by it), for
+         * {@link Proxy.Type#SOCKS} proxies only. Only applies to sockets created by
+         * {@link MultiProxySelector#socketFactory(String)}: {@link java.net.HttpURLConnection} resolves hostnames
+         * locally whatever this setting. Default: {@code false}.
+         */
+        public Builder remoteDns(boolean remoteDns) {
+            this.remoteDns = remoteDns;
+            return this;
+        }
+
+        public ProxyServer build() {
+            return new ProxyServer(this);
+        }
+    }
+}
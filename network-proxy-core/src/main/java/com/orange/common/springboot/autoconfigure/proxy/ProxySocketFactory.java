@@ -0,0 +1,130 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+
+/**
+ * {@link SocketFactory} connecting through the proxies selected by a {@link MultiProxySelector} (see
+ * {@link MultiProxySelector#socketFactory(String)})
+ * <p>
+ * The JDK resolves destination hostnames before connecting to a SOCKS proxy, then sends it the IP address. Here, when
+ * the hostname is known, it is sent unresolved to remote-dns SOCKS proxies (as a SOCKS5 domain name, or SOCKS4a) and
+ * to HTTP proxies (in the {@code CONNECT} request): the proxy resolves it. IP literals are never looked up.
+ * <p>
+ * Selected proxies are tried in order, failures being reported to the selector. Sockets count against the
+ * {@code max-concurrent-connections} of their proxy until closed (see {@link MultiProxySelector#acquire(Proxy)}).
+ */
+final class ProxySocketFactory extends SocketFactory {
+    private final MultiProxySelector selector;
+    private final String protocol;
+
+    ProxySocketFactory(MultiProxySelector selector, String protocol) {
+        this.selector = selector;
+        this.protocol = protocol;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return connect(host, null, port, null, 0);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return connect(host, null, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return connect(host.getHostAddress(), host, port, null, 0);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return connect(address.getHostAddress(), address, port, localAddress, localPort);
+    }
+
+    private Socket connect(String host, InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        URI uri;
+        try {
+            uri = new URI(protocol, null, host, port, null, null, null);
+        } catch (URISyntaxException e) {
+            throw new SocketException("Invalid destination: " + host + ":" + port);
+        }
+        List<Proxy> proxies = selector.select(uri);
+        IOException failure = null;
+        for (Proxy proxy : proxies) {
+            Socket socket = new LeasedSocket(proxy, selector.acquire(proxy));
+            try {
+                if (localAddress != null || localPort != 0) {
+                    socket.bind(new InetSocketAddress(localAddress, localPort));
+                }
+                socket.connect(destination(proxy, host, address, port));
+                if (proxy.type() != Proxy.Type.DIRECT) {
+                    selector.connectSucceeded(proxy);
+                }
+                return socket;
+            } catch (IOException e) {
+                closeQuietly(socket);
+                if (proxy.type() != Proxy.Type.DIRECT) {
+                    selector.connectFailed(uri, proxy.address(), e);
+                }
+                failure = e;
+            }
+        }
+        throw failure != null ? failure : new SocketException("No proxy selected for " + uri);
+    }
+
+    /**
+     * Returns the destination address to connect the socket to (unresolved when the proxy shall resolve it)
+     */
+    private InetSocketAddress destination(Proxy proxy, String host, InetAddress address, int port) {
+        if (address != null) {
+            return new InetSocketAddress(address, port);
+        }
+        if (HostNames.isIpLiteral(host)) {
+            // no lookup for literals
+            return new InetSocketAddress(host, port);
+        }
+        if (proxy.type() == Proxy.Type.HTTP || (proxy.type() == Proxy.Type.SOCKS && selector.isRemoteDns(proxy))) {
+            return InetSocketAddress.createUnresolved(host, port);
+        }
+        return new InetSocketAddress(host, port);
+    }
+
+    /**
+     * Socket releasing its lease when closed
+     */
+    private static final class LeasedSocket extends Socket {
+        private final MultiProxySelector.Lease lease;
+
+        LeasedSocket(Proxy proxy, MultiProxySelector.Lease lease) {
+            super(proxy);
+            this.lease = lease;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                lease.close();
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.net.Proxy;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime statistics of a single {@link Proxy}, used to order candidate proxies by expected connect latency
+ * <p>
+ * Keeps an exponentially weighted moving average (EWMA) of the connect latency (fed by health probes) and of the
+ * error rate (fed by health probes and {@link MultiProxySelector#connectFailed}). The error rate decays over time so
+ * that a proxy that failed in the past eventually gets traffic again even if nothing reports it as recovered.
+ * <p>
+ * A proxy is marked unhealthy after {@value #UNHEALTHY_THRESHOLD} consecutive failures, until a probe or a reported
+ * connection succeeds, or for {@link #RETRY_DELAY_NANOS} after the last failure (then it is given another chance).
+ * Failures are only consecutive if less than {@link #RETRY_DELAY_NANOS} apart, so that isolated failures never add up
+ * when nothing reports successes (e.g. without health checks).
+ * <p>
+ * Updates are rare (probes and failures) and synchronized; reads are lock-free.
+ * <p>
+ * Also counts in-flight connections (striped counters, updated on every reported connection) to enforce an optional
+ * max number of concurrent connections: a saturated proxy is tried after the available ones. The limit is soft, as
+ * the check and the connection are not atomic.
+ */
+class ProxyStats {
+    /**
+     * EWMA smoothing factor (weight of the latest sample)
+     */
+    static final double ALPHA = 0.3;
+    /**
+     * Error rate half-life (in nanos)
+     */
+    static final long ERROR_HALF_LIFE_NANOS = 30_000_000_000L;
+    /**
+     * Cost (in millis) assumed for a failed connection attempt
+     */
+    static final double FAILURE_PENALTY_MILLIS = 2_000;
+    /**
+     * Number of consecutive failures after which a proxy is considered unhealthy
+     */
+    static final int UNHEALTHY_THRESHOLD = 3;
+    /**
+     * Delay (in nanos) after the last failure during which an unhealthy proxy is not retried
+     */
+    static final long RETRY_DELAY_NANOS = 10_000_000_000L;
+
+    private final Proxy proxy;
+    private volatile double latencyMillis = Double.NaN;
+    private volatile double errorRate;
+    private volatile long errorRateTimestamp = System.nanoTime();
+    private volatile int consecutiveFailures;
+    private volatile long lastFailureTimestamp;
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder saturations = new LongAdder();
+    private volatile int maxConcurrentConnections;
+
+    ProxyStats(Proxy proxy) {
+        this.proxy = proxy;
+    }
+
+    /**
+     * Sets the max number of concurrent connections ({@code 0} means unlimited); the lowest limit wins when a proxy
+     * is shared by several servers
+     */
+    synchronized void limitConcurrentConnections(int max) {
+        if (max > 0 && (maxConcurrentConnections == 0 || max < maxConcurrentConnections)) {
+            maxConcurrentConnections = max;
+        }
+    }
+
+    int getMaxConcurrentConnections() {
+        return maxConcurrentConnections;
+    }
+
+    /**
+     * Records a new in-flight connection
+     */
+    void acquire() {
+        inFlight.increment();
+    }
+
+    /**
+     * Records the end of an in-flight connection
+     */
+    void release() {
+        inFlight.decrement();
+    }
+
+    long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * Returns whether this proxy reached its max number of concurrent connections
+     */
+    boolean isSaturated() {
+        int max = maxConcurrentConnections;
+        return max > 0 && inFlight.sum() >= max;
+    }
+
+    /**
+     * Records a selection that skipped this proxy because it was saturated
+     */
+    void recordSaturation() {
+        saturations.increment();
+    }
+
+    /**
+     * Returns the number of selections that skipped this proxy because it was saturated
+     */
+    long getSaturations() {
+        return saturations.sum();
+    }
+
+    Proxy getProxy() {
+        return proxy;
+    }
+
+    /**
+     * Records a successful connection established in {@code latencyNanos}
+     */
+    synchronized void recordSuccess(long latencyNanos) {
+        double sample = latencyNanos / 1_000_000d;
+        double current = latencyMillis;
+        latencyMillis = Double.isNaN(current) ? sample : ALPHA * sample + (1 - ALPHA) * current;
+        updateErrorRate(0);
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Records a successful connection through this proxy, reported by a client (ends a series of consecutive failures,
+     * without any latency sample: the connect time includes the destination)
+     */
+    void recordConnected() {
+        // lock-free on the hot path: connections are far more frequent than failures
+        if (consecutiveFailures != 0) {
+            synchronized (this) {
+                consecutiveFailures = 0;
+            }
+        }
+    }
+
+    /**
+     * Records a failed connection attempt
+     */
+    void recordFailure() {
+        recordFailure(System.nanoTime());
+    }
+
+    /**
+     * Records a failed connection attempt at {@code now} ({@link System#nanoTime()} time)
+     */
+    synchronized void recordFailure(long now) {
+        updateErrorRate(1);
+        if (consecutiveFailures > 0 && now - lastFailureTimestamp > RETRY_DELAY_NANOS) {
+            // too long since the previous failure: not consecutive
+            consecutiveFailures = 0;
+        }
+        consecutiveFailures++;
+        lastFailureTimestamp = now;
+    }
+
+    private void updateErrorRate(double sample) {
+        long now = System.nanoTime();
+        errorRate = ALPHA * sample + (1 - ALPHA) * decayedErrorRate(now);
+        errorRateTimestamp = now;
+    }
+
+    private double decayedErrorRate(long now) {
+        return errorRate * Math.pow(0.5, (double) (now - errorRateTimestamp) / ERROR_HALF_LIFE_NANOS);
+    }
+
+    /**
+     * Returns whether this proxy shall be tried
+     */
+    boolean isHealthy() {
+        return consecutiveFailures < UNHEALTHY_THRESHOLD || System.nanoTime() - lastFailureTimestamp > RETRY_DELAY_NANOS;
+    }
+
+    /**
+     * Returns the connect latency moving average (in millis), or {@link Double#NaN} if never measured
+     */
+    double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Returns the error rate moving average (between 0 and 1)
+     */
+    double getErrorRate() {
+        return decayedErrorRate(System.nanoTime());
+    }
+
+    /**
+     * Returns the expected cost (in millis) of connecting through this proxy
+     * <p>
+     * A proxy that was never measured is assumed to have no latency: it is ordered by its error rate only.
+     */
+    double getExpectedLatencyMillis() {
+        double latency = latencyMillis;
+        double errors = getErrorRate();
+        return (1 - errors) * (Double.isNaN(latency) ? 0 : latency) + errors * FAILURE_PENALTY_MILLIS;
+    }
+
+    @Override
+    public String toString() {
+        return "ProxyStats{" +
+                "proxy=" + proxy +
+                ", latencyMillis=" + latencyMillis +
+                ", errorRate=" + getErrorRate() +
+                ", healthy=" + isHealthy() +
+                ", inFlight=" + getInFlight() +
+                '}';
+    }
+}
@@ -0,0 +1,115 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Opens keep-alive connections through the proxies at startup, so that the first requests don't pay for the
+ * connection (and the proxy authentication round trip) to each proxy
+ * <p>
+ * The JDK keep-alive cache is keyed by destination and proxy: connections are warmed up for given URLs (typically the
+ * services the application calls), through every proxy {@link ProxySelector#select(URI) selected} for them (alternates
+ * included). For each URL and proxy, {@code connections} {@code GET} requests are sent, each one on its own connection
+ * (responses are only read once all are received), then connections are released to the keep-alive cache. Proxy
+ * credentials are negotiated through the default {@link java.net.Authenticator}, as for any other request.
+ * <p>
+ * The JDK keeps at most {@code http.maxConnections} (default: {@code 5}) idle connections per destination, and closes
+ * them after the keep-alive timeout sent by the proxy (default: {@code 5s}): warm up right before serving traffic.
+ * <p>
+ * With a {@link MultiProxySelector}, the warm-up selections are not tracked (candidate rule set sampling, heavy-hitter
+ * destinations, events), as they are not application traffic.
+ */
+public final class ProxyWarmUp {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyWarmUp.class);
+
+    private ProxyWarmUp() {
+    }
+
+    /**
+     * Warms up connections to every URL through its proxies (failures are only logged)
+     *
+     * @param connections number of connections to open per URL and proxy
+     * @param timeout     connect and read timeout of each request
+     * @return the number of connections warmed up
+     */
+    public static int warmUp(ProxySelector selector, Collection<URI> uris, int connections, Duration timeout) {
+        long start = System.nanoTime();
+        int warmedUp = 0;
+        for (URI uri : uris) {
+            List<Proxy> proxies = selector instanceof MultiProxySelector ? ((MultiProxySelector) selector).selectUntracked(uri) : selector.select(uri);
+            for (Proxy proxy : proxies) {
+                if (proxy.type() != Proxy.Type.DIRECT && !proxy.equals(MultiProxySelector.FAIL_FAST_PROXY)) {
+                    warmedUp += warmUp(uri, proxy, connections, (int) timeout.toMillis());
+                }
+            }
+        }
+        LOGGER.info("Warmed up {} proxy connections in {} ms", warmedUp, (System.nanoTime() - start) / 1_000_000);
+        return warmedUp;
+    }
+
+    private static int warmUp(URI uri, Proxy proxy, int connections, int timeoutMillis) {
+        List<HttpURLConnection> pending = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection(proxy);
+                connection.setConnectTimeout(timeoutMillis);
+                connection.setReadTimeout(timeoutMillis);
+                connection.setUseCaches(false);
+                pending.add(connection);
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_PROXY_AUTH) {
+                    LOGGER.warn("Proxy {} rejected the credentials while warming up connections to {}", proxy.address(), uri);
+                    break;
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.warn("Could not warm up connections to {} through {}", uri, proxy.address(), e);
+        }
+        int warmedUp = 0;
+        for (HttpURLConnection connection : pending) {
+            if (release(connection)) {
+                warmedUp++;
+            }
+        }
+        LOGGER.debug("Warmed up {} connections to {} through {}", warmedUp, uri, proxy.address());
+        return warmedUp;
+    }
+
+    /**
+     * Consumes the response body, so that the connection goes back to the keep-alive cache
+     *
+     * @return whether the connection is reusable
+     */
+    private static boolean release(HttpURLConnection connection) {
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_PROXY_AUTH) {
+                connection.disconnect();
+                return false;
+            }
+            InputStream body = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (body != null) {
+                try (InputStream in = body) {
+                    byte[] buffer = new byte[1024];
+                    while (in.read(buffer) >= 0) {
+                        // drain
+                    }
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            connection.disconnect();
+            return false;
+        }
+    }
+}
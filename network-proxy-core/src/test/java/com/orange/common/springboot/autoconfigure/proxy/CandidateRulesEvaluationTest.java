@@ -0,0 +1,90 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CandidateRulesEvaluationTest {
+    private static final Proxy INTRANET = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("10.0.0.1", 3128));
+    private static final Proxy INTERNET = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("10.0.0.2", 3128));
+
+    private MultiProxySelector selector(double sampleRate, int queueCapacity) {
+        return MultiProxySelector.builder()
+                .server(ProxyServer.builder("10.0.0.1", 3128).forHosts(".intranet.acme.com").build())
+                .server(ProxyServer.builder("10.0.0.2", 3128).notForHosts("localhost", ".acme.com").build())
+                // candidate: partners.acme.com moves to the internet proxy, and localhost to the intranet one
+                .candidate(Arrays.asList(
+                        ProxyServer.builder("10.0.0.1", 3128).forHosts(".intranet.acme.com", "localhost").build(),
+                        ProxyServer.builder("10.0.0.2", 3128).notForHosts(".intranet.acme.com", "localhost", "www.acme.com").build()
+                ), sampleRate, queueCapacity)
+                .build();
+    }
+
+    @Test
+    public void sampled_selections_should_be_compared() throws Exception {
+        MultiProxySelector selector = selector(1, 10_000);
+        try {
+            for (int i = 0; i < 100; i++) {
+                assertThat(selector.select(new URI("https://host" + i + ".intranet.acme.com/"))).containsExactly(INTRANET);
+                assertThat(selector.select(new URI("https://www.example.com/"))).containsExactly(INTERNET);
+                // selections are never changed by the candidate rules
+                assertThat(selector.select(new URI("https://partners.acme.com/"))).containsExactly(Proxy.NO_PROXY);
+                assertThat(selector.select(new URI("http://localhost:8080/"))).containsExactly(Proxy.NO_PROXY);
+            }
+            CandidateRulesEvaluation evaluation = selector.getCandidateEvaluation();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (evaluation.getEvaluated() + evaluation.getDropped() < evaluation.getSampled() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertThat(evaluation.getSampled()).isEqualTo(400);
+            assertThat(evaluation.getDropped()).isZero();
+            assertThat(evaluation.getEvaluated()).isEqualTo(400);
+            assertThat(evaluation.getDifferences()).isEqualTo(200);
+            assertThat(evaluation.getAgreements()).isEqualTo(200);
+            assertThat(evaluation.getDifferingHosts()).extracting(CandidateRulesEvaluation.Difference::toString).containsExactlyInAnyOrder(
+                    "https://partners.acme.com: DIRECT -> " + INTERNET,
+                    "http://localhost: DIRECT -> " + INTRANET
+            );
+            assertThat(evaluation.getActiveMeanNanos()).isPositive();
+            assertThat(evaluation.getCandidateMeanNanos()).isPositive();
+        } finally {
+            selector.close();
+        }
+    }
+
+    @Test
+    public void evaluation_should_not_block_selections() throws Exception {
+        MultiProxySelector selector = selector(1, 1);
+        try {
+            // cached selections are much faster than evaluations: the queue fills up
+            URI uri = new URI("https://www.example.com/");
+            for (int i = 0; i < 100_000; i++) {
+                selector.select(uri);
+            }
+            CandidateRulesEvaluation evaluation = selector.getCandidateEvaluation();
+            assertThat(evaluation.getSampled()).isEqualTo(100_000);
+            assertThat(evaluation.getDropped()).isPositive();
+        } finally {
+            selector.close();
+        }
+    }
+
+    @Test
+    public void unsampled_selections_should_not_be_evaluated() throws Exception {
+        MultiProxySelector selector = selector(0, 10);
+        try {
+            selector.select(new URI("https://www.example.com/"));
+            assertThat(selector.getCandidateEvaluation().getSampled()).isZero();
+            assertThat(selector.getCandidateEvaluation().getDifferingHosts()).isEqualTo(Collections.emptyList());
+        } finally {
+            selector.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that compiled rules select the same servers as interpreted ones, and compares their cost (uncached
+ * selections). The benchmark load can be raised with {@code -Dbench.iterations=...}.
+ */
+public class CompiledRulesTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompiledRulesTest.class);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 200_000);
+
+    private static final List<String> PROTOCOLS = Arrays.asList("http", "https", "ftp", "ws");
+
+    private static final List<String> HOSTS = Arrays.asList(
+            "", "localhost", "127.0.0.1", "10.99.101.5", "com", "orange.com", "portal.orange.com", "myorange.com",
+            "intranet.acme.fr", "billing.intranet.acme.fr", "acme.fr", "www.google.com", "google.com", "api.acme.com",
+            "www.acme.com", "x.y.partner.net", "partner.net", ".partner.net", "host42.corp", "host.corp", "a.b.c.d.e",
+            "server-12.lab", "server-12.lab.", "www.example.org", "example.org.");
+
+    private static List<ProxyServer> servers() {
+        return Arrays.asList(
+                ProxyServer.builder("intranet", 3128).forHosts("*.intranet.acme.fr", ".partner.net", "host42.corp").build(),
+                ProxyServer.builder("lab", 3128).forHosts("/server-\\d+\\.lab/", "orange.com").forProtocols(Arrays.asList("http", "ws")).build(),
+                ProxyServer.builder("acme", 3128).forHosts("acme.com", "www.example.org").forProtocols(Arrays.asList("https")).build(),
+                ProxyServer.builder("internet", 3128).notForHosts("localhost", "127.0.0.1", "/10\\..*/", ".orange.com", "acme.fr").build());
+    }
+
+    @Test
+    public void compiled_rules_should_select_like_interpreted_ones() {
+        assertSameSelections(servers());
+    }
+
+    @Test
+    public void compiled_rules_should_support_many_servers() {
+        // more than 64 servers: several bitset words
+        List<ProxyServer> servers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            servers.add(ProxyServer.builder("10.0.0." + i, 3128).forHosts("host" + i + ".corp", ".domain" + i + ".net").build());
+        }
+        servers.add(ProxyServer.builder("last", 3128).notForHosts("host99.corp", "orange.com").build());
+
+        List<String> hosts = new ArrayList<>(HOSTS);
+        for (int i = 0; i < 100; i += 7) {
+            hosts.add("host" + i + ".corp");
+            hosts.add("www.domain" + i + ".net");
+            hosts.add("domain" + i + ".net");
+        }
+        MultiProxySelector interpreted = MultiProxySelector.builder().servers(servers).build();
+        MultiProxySelector compiled = MultiProxySelector.builder().servers(servers).compiledRules(true).build();
+        for (String host : hosts) {
+            assertThat(compiled.findEntry("http", host)).as(host).hasToString(interpreted.findEntry("http", host).toString());
+        }
+        assertThat(compiled.findEntry("http", "host70.corp").toString()).contains("10.0.0.70");
+        assertThat(compiled.findEntry("http", "www.domain99.net").toString()).contains("10.0.0.99");
+        assertThat(compiled.findEntry("http", "www.google.com").toString()).contains("last");
+        assertThat(compiled.findEntry("http", "orange.com")).isSameAs(MultiProxySelector.ProxyEntry.DIRECT);
+    }
+
+    @Test
+    public void compiled_vs_interpreted_benchmark() {
+        List<ProxyServer> servers = new ArrayList<>(servers());
+        for (int i = 0; i < 20; i++) {
+            servers.add(0, ProxyServer.builder("10.0.1." + i, 3128).forHosts("app" + i + ".corp", ".zone" + i + ".corp", "svc" + i + ".acme.net").build());
+        }
+        MultiProxySelector interpreted = MultiProxySelector.builder().servers(servers).build();
+        MultiProxySelector compiled = MultiProxySelector.builder().servers(servers).compiledRules(true).build();
+
+        for (int round = 0; round < 3; round++) {
+            long interpretedNanos = run(interpreted);
+            long compiledNanos = run(compiled);
+            LOGGER.info("round {}: interpreted {} ns/selection, compiled {} ns/selection", round,
+                    interpretedNanos / ITERATIONS, compiledNanos / ITERATIONS);
+        }
+    }
+
+    private static long run(MultiProxySelector selector) {
+        long start = System.nanoTime();
+        int direct = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (selector.findEntry("https", HOSTS.get(i % HOSTS.size())) == MultiProxySelector.ProxyEntry.DIRECT) {
+                direct++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(direct).isPositive();
+        return elapsed;
+    }
+
+    /**
+     * Entries of distinct selectors are compared through their (distinct) servers descriptions
+     */
+    private static void assertSameSelections(List<ProxyServer> servers) {
+        MultiProxySelector interpreted = MultiProxySelector.builder().servers(servers).build();
+        MultiProxySelector compiled = MultiProxySelector.builder().servers(servers).compiledRules(true).build();
+        for (String protocol : PROTOCOLS) {
+            for (String host : HOSTS) {
+                assertThat(compiled.findEntry(protocol, host))
+                        .as("%s://%s", protocol, host)
+                        .hasToString(interpreted.findEntry(protocol, host).toString());
+            }
+        }
+    }
+}
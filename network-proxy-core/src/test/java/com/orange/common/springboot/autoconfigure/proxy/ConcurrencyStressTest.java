@@ -0,0 +1,205 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.Authenticator;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress tests hammering the shared state of {@link MultiProxySelector} and {@link MultiServerAuthenticator} from
+ * many threads at once
+ * <p>
+ * Runs with platform threads, and also with virtual threads when the runtime supports them (Java 21+).
+ */
+public class ConcurrencyStressTest {
+    private static final int THREADS = 16;
+    private static final int HOSTS = 500;
+    private static final int ROUNDS = 20;
+
+    private Authenticator previousAuthenticator;
+
+    @Before
+    public void saveAuthenticator() {
+        previousAuthenticator = DefaultAuthenticator.get();
+    }
+
+    @After
+    public void restoreAuthenticator() {
+        Authenticator.setDefault(previousAuthenticator);
+    }
+
+    @Test
+    public void select_should_be_consistent_with_platform_threads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            stressSelect(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void select_should_be_consistent_with_virtual_threads() throws Exception {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        try {
+            stressSelect(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void authenticator_should_be_consistent_with_platform_threads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            stressAuthenticator(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void authenticator_should_be_consistent_with_virtual_threads() throws Exception {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        try {
+            stressAuthenticator(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void stressSelect(ExecutorService executor) throws Exception {
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(proxy("intranet", Collections.singletonList("*.intranet.fr"), Collections.emptyList()))
+                .server(proxy("internet", Collections.emptyList(), Collections.singletonList("localhost")))
+                .build();
+        Proxy intranet = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("intranet", 3128));
+        Proxy internet = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("internet", 3128));
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            tasks.add(() -> {
+                start.await();
+                for (int r = 0; r < ROUNDS; r++) {
+                    for (int h = 0; h < HOSTS; h++) {
+                        // every thread walks the hosts in a different order to maximize contention on new entries
+                        int idx = (h * 7 + offset * 31 + r) % HOSTS;
+                        String host = idx % 2 == 0 ? "host" + idx + ".intranet.fr" : "host" + idx + ".example.com";
+                        List<Proxy> proxies = selector.select(new URI("https://" + host + "/"));
+                        assertThat(proxies).containsExactly(idx % 2 == 0 ? intranet : internet);
+                        if (r == 0 && h % 100 == 0) {
+                            selector.connectFailed(new URI("https://" + host + "/"), proxies.get(0).address(), new ConnectException("stress"));
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        List<Future<Void>> results = submitAll(executor, tasks);
+        start.countDown();
+        awaitAll(results);
+
+        // no lost or corrupted cache entries
+        Map<?, ?> cache = (Map<?, ?>) extract(selector, "hostname2Entries");
+        assertThat(cache).hasSize(HOSTS);
+    }
+
+    private void stressAuthenticator(ExecutorService executor) throws Exception {
+        // backoff disabled: the same servers are (legitimately) challenged over and over
+        MultiServerAuthenticator msa = new MultiServerAuthenticator(0, Duration.ofSeconds(10), Duration.ofSeconds(30));
+        for (int p = 0; p < HOSTS; p++) {
+            msa.add("proxy" + p + ":3128", "user" + p, "password" + p);
+        }
+        Authenticator.setDefault(msa);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            tasks.add(() -> {
+                start.await();
+                for (int r = 0; r < ROUNDS; r++) {
+                    // concurrently register new servers...
+                    msa.add("added-" + offset + "-" + r + ":3128", "user", "password");
+                    // ...while resolving existing ones
+                    for (int p = offset; p < HOSTS; p += THREADS) {
+                        PasswordAuthentication auth = Authenticator.requestPasswordAuthentication("proxy" + p, null, 3128, "http", "realm", "basic", null, Authenticator.RequestorType.PROXY);
+                        assertThat(auth).isNotNull();
+                        assertThat(auth.getUserName()).isEqualTo("user" + p);
+                        assertThat(new String(auth.getPassword())).isEqualTo("password" + p);
+                    }
+                    assertThat(Authenticator.requestPasswordAuthentication("unknown", null, 3128, "http", "realm", "basic", null, Authenticator.RequestorType.PROXY)).isNull();
+                }
+                return null;
+            });
+        }
+        List<Future<Void>> results = submitAll(executor, tasks);
+        start.countDown();
+        awaitAll(results);
+
+        // no lost update
+        assertThat(msa.size()).isEqualTo(HOSTS + THREADS * ROUNDS);
+    }
+
+    private static ProxyServer proxy(String host, List<String> forHosts, List<String> notForHosts) {
+        return ProxyServer.builder(host, 3128).forHosts(forHosts).notForHosts(notForHosts).build();
+    }
+
+    private static List<Future<Void>> submitAll(ExecutorService executor, List<Callable<Void>> tasks) {
+        List<Future<Void>> results = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            results.add(executor.submit(task));
+        }
+        return results;
+    }
+
+    private static void awaitAll(List<Future<Void>> results) throws Exception {
+        for (Future<Void> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Object extract(Object target, String field) throws ReflectiveOperationException {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        return f.get(target);
+    }
+
+    /**
+     * Creates a virtual thread executor by reflection (the project targets Java 8), or skips the test
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            Assume.assumeNoException("virtual threads not supported by this runtime", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.lang.reflect.Field;
+import java.net.Authenticator;
+
+/**
+ * Reads the default {@link Authenticator}, so that tests installing their own can restore it
+ * <p>
+ * {@code Authenticator.getDefault()} only exists since Java 9: on Java 8, the private {@code theAuthenticator} field is
+ * read instead.
+ */
+final class DefaultAuthenticator {
+    private DefaultAuthenticator() {
+    }
+
+    static Authenticator get() {
+        try {
+            return (Authenticator) Authenticator.class.getMethod("getDefault").invoke(null);
+        } catch (NoSuchMethodException e) {
+            try {
+                Field field = Authenticator.class.getDeclaredField("theAuthenticator");
+                field.setAccessible(true);
+                return (Authenticator) field.get(null);
+            } catch (ReflectiveOperationException e2) {
+                throw new IllegalStateException("Default authenticator can't be read", e2);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Default authenticator can't be read", e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class DestinationSketchTest {
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    public void heavy_hitters_should_be_found_in_a_long_tail() {
+        DestinationSketch sketch = new DestinationSketch(10, HOUR);
+        Map<String, Long> counts = new HashMap<>();
+        Random random = new Random(42);
+        int total = 0;
+        for (int i = 0; i < 500_000; i++) {
+            // 5 heavy hosts (~40% of the traffic), then one-time hosts
+            String host = random.nextInt(10) < 4 ? "api" + random.nextInt(5) + ".acme.com" : "host" + i + ".example.com";
+            sketch.add(host);
+            counts.merge(host, 1L, Long::sum);
+            total++;
+        }
+
+        List<DestinationSketch.Destination> top = sketch.getTopDestinations();
+        assertThat(top.size()).isLessThanOrEqualTo(10);
+        assertThat(top.subList(0, 5)).extracting(DestinationSketch.Destination::getHost)
+                .containsExactlyInAnyOrder("api0.acme.com", "api1.acme.com", "api2.acme.com", "api3.acme.com", "api4.acme.com");
+        for (DestinationSketch.Destination destination : top.subList(0, 5)) {
+            // never underestimated, overestimated by a small share of the stream
+            assertThat(destination.getCount()).isBetween(counts.get(destination.getHost()), counts.get(destination.getHost()) + total / 100);
+            assertThat(destination.getRate()).isPositive();
+        }
+    }
+
+    @Test
+    public void hosts_with_colliding_string_hashes_should_be_counted_apart() {
+        DestinationSketch sketch = new DestinationSketch(10, HOUR);
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        for (int i = 0; i < 100; i++) {
+            sketch.add("Aa");
+        }
+        sketch.add("BB");
+
+        assertThat(sketch.getTopDestinations()).extracting(DestinationSketch.Destination::getHost, DestinationSketch.Destination::getCount)
+                .containsExactly(tuple("Aa", 100L), tuple("BB", 1L));
+    }
+
+    @Test
+    public void concurrent_updates_should_be_counted() throws Exception {
+        DestinationSketch sketch = new DestinationSketch(4, HOUR);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                results.add(threads.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        sketch.add("api.acme.com");
+                        sketch.add("host" + thread + "-" + i + ".example.com");
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        DestinationSketch.Destination first = sketch.getTopDestinations().get(0);
+        assertThat(first.getHost()).isEqualTo("api.acme.com");
+        // concurrent top-K updates may lag behind the sketch
+        assertThat(first.getCount()).isBetween(390_000L, 400_000L + 8_000L);
+    }
+
+    @Test
+    public void top_destinations_should_be_reported_per_window() throws Exception {
+        DestinationSketch sketch = new DestinationSketch(4, TimeUnit.MILLISECONDS.toNanos(100));
+        for (int i = 0; i < 100; i++) {
+            sketch.add("api.acme.com");
+        }
+        assertThat(sketch.getTopDestinations()).extracting(DestinationSketch.Destination::getCount).containsExactly(100L);
+
+        Thread.sleep(150);
+        // the ended window is reported, while a new one starts
+        sketch.add("www.acme.com");
+        List<DestinationSketch.Destination> top = sketch.getTopDestinations();
+        assertThat(top).extracting(DestinationSketch.Destination::getHost).containsExactly("api.acme.com");
+        assertThat(top.get(0).getRate()).isBetween(100 / 0.5, 100 / 0.1);
+
+        Thread.sleep(150);
+        assertThat(sketch.getTopDestinations()).extracting(DestinationSketch.Destination::getHost).containsExactly("www.acme.com");
+        Thread.sleep(150);
+        assertThat(sketch.getTopDestinations()).isEmpty();
+    }
+
+    @Test
+    public void selector_should_track_destinations_per_proxy() throws Exception {
+        Proxy intranet = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("10.0.0.1", 3128));
+        Proxy internet = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("10.0.0.2", 3128));
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("10.0.0.1", 3128).forHosts(".intranet.acme.com").build())
+                .server(ProxyServer.builder("10.0.0.2", 3128).notForHosts("localhost", ".acme.com").build())
+                .heavyHitters(2, Duration.ofHours(1))
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            selector.select(new URI("https://portal.intranet.acme.com/"));
+            selector.select(new URI("https://www.example.com/"));
+            selector.select(new URI("https://localhost/"));
+        }
+        selector.select(new URI("https://www.example.org/"));
+
+        Map<Proxy, List<DestinationSketch.Destination>> top = selector.getTopDestinations();
+        assertThat(top).containsOnlyKeys(intranet, internet);
+        assertThat(top.get(intranet)).extracting(DestinationSketch.Destination::getHost).containsExactly("portal.intranet.acme.com");
+        assertThat(top.get(intranet).get(0).getCount()).isEqualTo(10);
+        assertThat(top.get(internet)).extracting(DestinationSketch.Destination::getHost).containsExactly("www.example.com", "www.example.org");
+    }
+}
@@ -0,0 +1,288 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end throughput harness: drives {@link HttpURLConnection} through {@link MultiProxySelector} and
+ * {@link MultiServerAuthenticator} installed as JVM defaults, against a {@link LocalProxyServer} and local {@code http}
+ * and {@code https} origin servers: {@code http} requests are forwarded in absolute-form, {@code https} ones go through
+ * {@code CONNECT} tunnels.
+ * <p>
+ * The selector and authenticator are built and installed by hand, as {@code NetworkProxyInstaller.install(properties)}
+ * does: the installer lives in the Spring Boot starter, which this module can't depend on. The {@code https} origin
+ * uses the self-signed {@code origin.p12} test keystore, trusted by the client connections only.
+ * <p>
+ * Reports requests per second, p50/p99 latency, {@code 407} counts and tunnels per configuration. The load can be raised with
+ * {@code -De2e.requests=...}, {@code -De2e.threads=...} and {@code -De2e.warmup=...} (sequential requests issued
+ * before measuring).
+ * <p>
+ * Timing dependent, thus excluded from the default build: run with {@code mvn test -Pthroughput}. Basic proxy
+ * authentication of tunnels is disabled by the JDK unless {@code jdk.http.auth.tunneling.disabledSchemes} is set before
+ * {@link HttpURLConnection} is first used: the profile thus runs each test class in its own JVM.
+ */
+public class EndToEndThroughputTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EndToEndThroughputTest.class);
+    private static final int REQUESTS = Integer.getInteger("e2e.requests", 400);
+    private static final int THREADS = Integer.getInteger("e2e.threads", 4);
+    private static final int WARMUP = Integer.getInteger("e2e.warmup", 50);
+    private static final byte[] BODY = "hello".getBytes(StandardCharsets.UTF_8);
+
+    private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+
+    static {
+        // see: https://www.oracle.com/technetwork/java/javase/8u111-relnotes-3124969.html
+        System.setProperty("jdk.http.auth.tunneling.disabledSchemes", "");
+    }
+
+    private static HttpServer origin;
+    private static HttpsServer secureOrigin;
+    private static SSLContext sslContext;
+
+    private ProxySelector previousSelector;
+    private Authenticator previousAuthenticator;
+
+    @BeforeClass
+    public static void startOrigins() throws IOException, GeneralSecurityException {
+        // avoid Nagle / delayed ACK stalls between response headers and body
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpHandler handler = exchange -> {
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(BODY);
+            }
+        };
+        origin = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        origin.createContext("/", handler);
+        origin.setExecutor(Executors.newFixedThreadPool(THREADS));
+        origin.start();
+
+        // the same self-signed certificate is used as server key and client trust anchor
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = EndToEndThroughputTest.class.getResourceAsStream("/origin.p12")) {
+            keyStore.load(in, KEYSTORE_PASSWORD);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, KEYSTORE_PASSWORD);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+
+        secureOrigin = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        secureOrigin.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+        secureOrigin.createContext("/", handler);
+        secureOrigin.setExecutor(Executors.newFixedThreadPool(THREADS));
+        secureOrigin.start();
+    }
+
+    @AfterClass
+    public static void stopOrigins() {
+        origin.stop(0);
+        secureOrigin.stop(0);
+    }
+
+    @Before
+    public void saveDefaults() {
+        previousSelector = ProxySelector.getDefault();
+        previousAuthenticator = DefaultAuthenticator.get();
+    }
+
+    @After
+    public void restoreDefaults() {
+        ProxySelector.setDefault(previousSelector);
+        Authenticator.setDefault(previousAuthenticator);
+    }
+
+    @Test
+    public void http_proxy_without_authentication() throws Exception {
+        try (LocalProxyServer proxy = new LocalProxyServer()) {
+            Report report = run("http proxy, no auth", proxy, null, null, originUrl("http", origin));
+            assertThat(report.errors).isZero();
+            assertThat(proxy.getRequests()).isEqualTo(WARMUP + REQUESTS);
+            assertThat(proxy.getAuthChallenges()).isZero();
+        }
+    }
+
+    @Test
+    public void http_proxy_with_basic_authentication() throws Exception {
+        try (LocalProxyServer proxy = new LocalProxyServer("login", "password")) {
+            Report report = run("http proxy, basic auth", proxy, "login", "password", originUrl("http", origin));
+            assertThat(report.errors).isZero();
+            assertThat(proxy.getRequests()).isEqualTo(WARMUP + REQUESTS);
+            // the JDK caches proxy credentials: only the first request(s) should be challenged
+            assertThat(proxy.getAuthChallenges()).isLessThanOrEqualTo(THREADS);
+        }
+    }
+
+    @Test
+    public void https_tunnel_without_authentication() throws Exception {
+        try (LocalProxyServer proxy = new LocalProxyServer()) {
+            Report report = run("https tunnel, no auth", proxy, null, null, originUrl("https", secureOrigin));
+            assertThat(report.errors).isZero();
+            assertThat(proxy.getRequests()).isZero();
+            assertThat(proxy.getTunnels()).isPositive();
+            assertThat(proxy.getAuthChallenges()).isZero();
+        }
+    }
+
+    @Test
+    public void https_tunnel_with_basic_authentication() throws Exception {
+        try (LocalProxyServer proxy = new LocalProxyServer("login", "password")) {
+            Report report = run("https tunnel, basic auth", proxy, "login", "password", originUrl("https", secureOrigin));
+            assertThat(report.errors).isZero();
+            assertThat(proxy.getRequests()).isZero();
+            assertThat(proxy.getTunnels()).isPositive();
+            // credentials are cached for CONNECT requests too: only the first tunnel(s) should be challenged
+            assertThat(proxy.getAuthChallenges()).isLessThanOrEqualTo(THREADS);
+        }
+    }
+
+    private static URL originUrl(String protocol, HttpServer server) throws IOException {
+        return new URL(protocol, InetAddress.getLoopbackAddress().getHostAddress(), server.getAddress().getPort(), "/");
+    }
+
+    private Report run(String name, LocalProxyServer proxy, String username, String password, URL url) throws Exception {
+        ProxySelector.setDefault(MultiProxySelector.builder()
+                .server(ProxyServer.builder(proxy.getHost(), proxy.getPort()).forHosts(InetAddress.getLoopbackAddress().getHostAddress()).build())
+                .build());
+        if (username != null) {
+            MultiServerAuthenticator msa = new MultiServerAuthenticator();
+            msa.add(proxy.getHost() + ":" + proxy.getPort(), username, password);
+            Authenticator.setDefault(msa);
+        }
+
+        call(url, WARMUP);
+        ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int count = REQUESTS / THREADS + (t < REQUESTS % THREADS ? 1 : 0);
+                results.add(clients.submit(() -> call(url, count)));
+            }
+            long[] latencies = new long[REQUESTS];
+            int errors = 0;
+            int idx = 0;
+            for (Future<long[]> result : results) {
+                for (long latency : result.get()) {
+                    if (latency < 0) {
+                        errors++;
+                    }
+                    latencies[idx++] = latency;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            Report report = new Report(name, latencies, errors, elapsed, proxy.getAuthChallenges(), proxy.getConnections(), proxy.getTunnels());
+            LOGGER.info("{}", report);
+            return report;
+        } finally {
+            clients.shutdown();
+            clients.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Performs {@code count} sequential GET requests, and returns their latencies in nanos ({@code -1} on error)
+     */
+    private static long[] call(URL url, int count) {
+        long[] latencies = new long[count];
+        byte[] buffer = new byte[256];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            try {
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                if (connection instanceof HttpsURLConnection) {
+                    ((HttpsURLConnection) connection).setSSLSocketFactory(sslContext.getSocketFactory());
+                }
+                if (connection.getResponseCode() != 200) {
+                    latencies[i] = -1;
+                    continue;
+                }
+                // fully consume the body so that the connection goes back to the keep-alive cache
+                try (InputStream body = connection.getInputStream()) {
+                    while (body.read(buffer) >= 0) {
+                        // drain
+                    }
+                }
+                latencies[i] = System.nanoTime() - start;
+            } catch (IOException e) {
+                latencies[i] = -1;
+            }
+        }
+        return latencies;
+    }
+
+    static class Report {
+        final String name;
+        final int requests;
+        final int errors;
+        final double requestsPerSecond;
+        final double p50Millis;
+        final double p99Millis;
+        final long authChallenges;
+        final int proxyConnections;
+        final long tunnels;
+
+        Report(String name, long[] latencies, int errors, long elapsedNanos, long authChallenges, int proxyConnections, long tunnels) {
+            this.name = name;
+            this.requests = latencies.length;
+            this.errors = errors;
+            this.requestsPerSecond = latencies.length * 1e9 / elapsedNanos;
+            long[] sorted = Arrays.stream(latencies).filter(l -> l >= 0).sorted().toArray();
+            this.p50Millis = percentile(sorted, 0.50) / 1e6;
+            this.p99Millis = percentile(sorted, 0.99) / 1e6;
+            this.authChallenges = authChallenges;
+            this.proxyConnections = proxyConnections;
+            this.tunnels = tunnels;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s] requests=%d errors=%d throughput=%.1f req/s p50=%.3f ms p99=%.3f ms 407=%d proxy-connections=%d tunnels=%d",
+                    name, requests, errors, requestsPerSecond, p50Millis, p99Millis, authChallenges, proxyConnections, tunnels);
+        }
+    }
+}
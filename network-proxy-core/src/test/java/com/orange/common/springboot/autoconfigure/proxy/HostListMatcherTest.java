@@ -0,0 +1,92 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.net.Proxy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HostListMatcherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void host_list_should_match_like_host_or_domain_matchers() throws Exception {
+        HostListMatcher matcher = new HostListMatcher(write("hosts.txt",
+                "# comment",
+                "",
+                "orange.com",
+                ".intranet.fr",
+                "*.acme.org",
+                "/unsupported regex/",
+                "some*wildcard.com"));
+
+        assertThat(matcher.size()).isEqualTo(3);
+        assertThat(matcher.matches("orange.com")).isTrue();
+        assertThat(matcher.matches("portal.orange.com")).isTrue();
+        assertThat(matcher.matches("Portal.Orange.COM")).isTrue();
+        assertThat(matcher.matches("myorange.com")).isFalse();
+        assertThat(matcher.matches("com")).isFalse();
+        assertThat(matcher.matches("intranet.fr")).isFalse();
+        assertThat(matcher.matches("app.intranet.fr")).isTrue();
+        assertThat(matcher.matches("acme.org")).isFalse();
+        assertThat(matcher.matches("www.acme.org")).isTrue();
+        assertThat(matcher.matches("some.wildcard.com")).isFalse();
+    }
+
+    @Test
+    public void large_host_list_should_be_compact() throws Exception {
+        Path file = folder.newFile("large.txt").toPath();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 100_000; i++) {
+                writer.write("host" + i + ".domain" + (i % 1000) + ".com\n");
+            }
+        }
+        HostListMatcher matcher = new HostListMatcher(file);
+
+        assertThat(matcher.size()).isEqualTo(100_000);
+        assertThat(matcher.matches("host4242.domain242.com")).isTrue();
+        assertThat(matcher.matches("www.host99999.domain999.com")).isTrue();
+        assertThat(matcher.matches("host4242.domain243.com")).isFalse();
+        // ~27 bytes per entry (chars + offset), instead of 100k matchers and strings
+        assertThat(HostListMatcher.read(file).sizeInBytes()).isLessThan(3_000_000);
+    }
+
+    @Test
+    public void host_list_should_be_reloaded_when_changed() throws Exception {
+        Path file = write("intranet.txt", "intranet.fr");
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("proxy", 3128).forHostsFiles(Collections.singletonList(file.toString())).build())
+                .build();
+        URI uri = new URI("http://www.acme.org/");
+
+        try (FileWatcher watcher = new FileWatcher()) {
+            selector.watchHostLists(watcher);
+            assertThat(selector.select(uri)).containsExactly(Proxy.NO_PROXY);
+
+            Files.write(file, Arrays.asList("intranet.fr", "acme.org"), StandardCharsets.UTF_8);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (selector.select(uri).get(0) == Proxy.NO_PROXY && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(selector.select(uri).get(0).address().toString()).startsWith("proxy");
+        }
+    }
+
+    private Path write(String name, String... lines) throws Exception {
+        Path file = folder.newFile(name).toPath();
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+}
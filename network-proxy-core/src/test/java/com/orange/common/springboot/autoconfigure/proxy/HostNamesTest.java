@@ -0,0 +1,83 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.orange.common.springboot.autoconfigure.proxy.HostNames.canonicalize;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HostNamesTest {
+    @Test
+    public void canonical_hostname_should_be_returned_as_is() {
+        String host = "portal.orange.com";
+        assertThat(canonicalize(host)).isSameAs(host);
+    }
+
+    @Test
+    public void hostname_should_be_lower_cased() {
+        assertThat(canonicalize("Portal.Orange.COM")).isEqualTo("portal.orange.com");
+    }
+
+    @Test
+    public void trailing_dot_should_be_removed() {
+        assertThat(canonicalize("portal.orange.com.")).isEqualTo("portal.orange.com");
+        assertThat(canonicalize("Portal.Orange.COM.")).isEqualTo("portal.orange.com");
+    }
+
+    @Test
+    public void idn_should_be_converted_to_punycode() {
+        assertThat(canonicalize("bücher.de")).isEqualTo("xn--bcher-kva.de");
+        assertThat(canonicalize("BÜCHER.de.")).isEqualTo("xn--bcher-kva.de");
+    }
+
+    @Test
+    public void ipv6_literals_should_be_normalized() {
+        assertThat(canonicalize("[::1]")).isEqualTo("0:0:0:0:0:0:0:1");
+        assertThat(canonicalize("0:0:0:0:0:0:0:1")).isEqualTo("0:0:0:0:0:0:0:1");
+        assertThat(canonicalize("[2001:DB8::A]")).isEqualTo("2001:db8:0:0:0:0:0:a");
+    }
+
+    @Test
+    public void ip_literals_should_be_recognized() {
+        assertThat(HostNames.isIpLiteral("127.0.0.1")).isTrue();
+        assertThat(HostNames.isIpLiteral("255.255.255.255")).isTrue();
+        assertThat(HostNames.isIpLiteral("::1")).isTrue();
+        assertThat(HostNames.isIpLiteral("[2001:DB8::A]")).isTrue();
+        assertThat(HostNames.isIpLiteral("fe80::1%1")).isTrue();
+        assertThat(HostNames.isIpLiteral("256.0.0.1")).isFalse();
+        assertThat(HostNames.isIpLiteral("1.2.3")).isFalse();
+        assertThat(HostNames.isIpLiteral("1..2.3")).isFalse();
+        assertThat(HostNames.isIpLiteral("1234")).isFalse();
+        assertThat(HostNames.isIpLiteral("www.acme.com")).isFalse();
+        assertThat(HostNames.isIpLiteral("host:name")).isFalse();
+        assertThat(HostNames.isIpLiteral("")).isFalse();
+    }
+
+    @Test
+    public void host_or_domain_matchers_should_be_canonicalized() {
+        assertThat(HostNames.canonicalizeHostOrDomain(".Orange.COM.")).isEqualTo(".orange.com");
+        assertThat(HostnameMatcher.parse("Orange.COM").matches("portal.orange.com")).isTrue();
+        assertThat(HostnameMatcher.parse("bücher.de").matches("www.xn--bcher-kva.de")).isTrue();
+    }
+
+    @Test
+    public void selector_should_use_canonical_hostnames() throws Exception {
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("proxy", 3128).forHosts("Orange.com", "bücher.de", "[::1]").build())
+                .build();
+        Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("proxy", 3128));
+
+        assertThat(selector.select(new URI("http://WWW.ORANGE.COM/"))).containsExactly(proxy);
+        assertThat(selector.select(new URI("HTTP://www.orange.com./"))).containsExactly(proxy);
+        assertThat(selector.select(new URI("http://www.xn--bcher-kva.de/"))).containsExactly(proxy);
+        assertThat(selector.select(new URI("http://www.bücher.de/"))).containsExactly(proxy);
+        assertThat(selector.select(new URI("http://[::1]:8080/"))).containsExactly(proxy);
+        assertThat(selector.select(new URI("http://[0:0:0:0:0:0:0:1]/"))).containsExactly(proxy);
+        assertThat(selector.select(new URI("http://www.google.com/"))).containsExactly(Proxy.NO_PROXY);
+    }
+}
@@ -61,4 +61,15 @@ public class HostnameMatcherTest {
                 .extracting("pattern")
                 .containsExactly(".*\\.orange\\.com");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void regex_matchers_should_ignore_case() {
+        for (boolean linearTime : new boolean[]{false, true}) {
+            HostnameMatcher matcher = parse("/Portal\\.Orange\\.COM/", linearTime);
+            assertThat(matcher.matches(HostNames.canonicalize("portal.orange.com"))).isTrue();
+            assertThat(matcher.matches(HostNames.canonicalize("PORTAL.Orange.com"))).isTrue();
+            // IPv6 literals are seen in their canonical form
+            assertThat(parse("/0:0:0:0:0:0:0:1/", linearTime).matches(HostNames.canonicalize("[::1]"))).isTrue();
+        }
+    }
+}
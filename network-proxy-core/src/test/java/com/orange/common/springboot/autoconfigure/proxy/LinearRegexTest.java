@@ -0,0 +1,113 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LinearRegexTest {
+    private static final List<String> PATTERNS = Arrays.asList(
+            ".*\\.orange\\.com",
+            "(www|api)\\.acme\\.(com|org)",
+            "[a-z0-9-]+\\.intranet\\.fr",
+            "[^.]+\\.local",
+            "host\\d{1,3}\\.corp",
+            "\\w+-\\d+\\.example\\.com",
+            "(?:[a-z]+\\.)*acme\\.com",
+            "(?<sub>[a-z]+)\\.acme\\.com",
+            "^api\\.acme\\.com$",
+            "a{2,}\\.b",
+            "a{0,2}b?c*",
+            "\\Qmy.host\\E\\..*",
+            ".*\\bapi\\b.*",
+            "x(a|ab)(c|bcd)(d*)",
+            "(a*)*b",
+            "",
+            ".+?\\.com");
+
+    private static final List<String> HOSTS = Arrays.asList(
+            "", "orange.com", "www.orange.com", "myorange.com", "www.acme.com", "api.acme.org", "ftp.acme.com",
+            "app-1.intranet.fr", "intranet.fr", "printer.local", "a.b.local", "host1.corp", "host1234.corp",
+            "web-42.example.com", "acme.com", "x.y.acme.com", "aa.b", "a.b", "aab", "ccc", "abc", "my.host.fr",
+            "myxhost.fr", "my-api.acme.com", "xapix.com", "xabcd", "xabcdd", "aaab", "aaa", "x.com", ".com");
+
+    @Test
+    public void linear_regex_should_match_like_java_regex() {
+        for (String regex : PATTERNS) {
+            LinearRegex linear = LinearRegex.compile(regex);
+            Pattern pattern = Pattern.compile(regex);
+            for (String host : HOSTS) {
+                assertThat(linear.matches(host))
+                        .as("/%s/ on '%s'", regex, host)
+                        .isEqualTo(pattern.matcher(host).matches());
+            }
+        }
+    }
+
+    @Test
+    public void case_insensitive_linear_regex_should_match_like_java_regex() {
+        List<String> patterns = new ArrayList<>(PATTERNS);
+        patterns.addAll(Arrays.asList("WWW\\.Orange\\.COM", "[^a]+", "[^A-Z.]+\\.com", "\\QMY.HOST\\E\\..*", "\\x41.*"));
+        List<String> hosts = new ArrayList<>(HOSTS);
+        hosts.addAll(Arrays.asList("WWW.ORANGE.COM", "AAB", "Ab.Com", "My.Host.fr"));
+        for (String regex : patterns) {
+            LinearRegex linear = LinearRegex.compile(regex, true);
+            Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+            for (String host : hosts) {
+                assertThat(linear.matches(host))
+                        .as("/%s/i on '%s'", regex, host)
+                        .isEqualTo(pattern.matcher(host).matches());
+            }
+        }
+    }
+
+    @Test
+    public void unsupported_constructs_should_be_rejected() {
+        for (String regex : Arrays.asList("(a)\\1", "(?=a)a", "(?!a)b", "(?<=a)b", "(?>a)", "a*+", "(?i)acme", "\\p{Alpha}", "[a-z&&[^b]]", "a{1001}", "(a{100}){200}")) {
+            assertThatThrownBy(() -> LinearRegex.compile(regex)).as(regex).isInstanceOf(PatternSyntaxException.class);
+        }
+    }
+
+    @Test
+    public void invalid_patterns_should_be_rejected() {
+        for (String regex : Arrays.asList("(a", "a)", "[a-", "*a", "a{2", "[z-a]", "\\")) {
+            assertThatThrownBy(() -> LinearRegex.compile(regex)).as(regex).isInstanceOf(PatternSyntaxException.class);
+        }
+    }
+
+    @Test(timeout = 5_000)
+    public void pathological_pattern_should_run_in_linear_time() {
+        // catastrophic backtracking with java.util.regex
+        LinearRegex regex = LinearRegex.compile("(a+)+b");
+        StringBuilder host = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            host.append('a');
+        }
+        host.append('!');
+
+        assertThat(regex.matches(host)).isFalse();
+    }
+
+    @Test
+    public void selector_should_reject_unsupported_patterns() throws Exception {
+        ProxyServer server = ProxyServer.builder("proxy", 3128).forHosts("/(a)\\1/").build();
+        assertThatThrownBy(() -> MultiProxySelector.builder().server(server).linearTimeRegex(true).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Backreferences");
+
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("proxy", 3128).forHosts("/(www|api)\\.acme\\.com/", "*.orange.*").build())
+                .linearTimeRegex(true)
+                .build();
+        assertThat(selector.select(new URI("http://api.acme.com/")).get(0).address().toString()).startsWith("proxy");
+        assertThat(selector.select(new URI("http://portal.orange.fr/")).get(0).address().toString()).startsWith("proxy");
+        assertThat(selector.select(new URI("http://acme.com/"))).containsExactly(java.net.Proxy.NO_PROXY);
+    }
+}
@@ -0,0 +1,279 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal in-process HTTP proxy used as a stand-in for real proxies in tests
+ * <p>
+ * Supports absolute-form requests (plain HTTP proxying with keep-alive), {@code CONNECT} tunnels and optional
+ * {@code Basic} proxy authentication. Only {@code Content-Length} delimited bodies are supported.
+ */
+class LocalProxyServer implements Closeable {
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "local-proxy");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final String expectedAuthorization;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong tunnels = new AtomicLong();
+    private final AtomicLong authChallenges = new AtomicLong();
+    private volatile boolean closed;
+
+    LocalProxyServer() throws IOException {
+        this(null, null);
+    }
+
+    LocalProxyServer(String username, String password) throws IOException {
+        this.expectedAuthorization = username == null ? null : "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptLoop);
+    }
+
+    String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of accepted client connections
+     */
+    int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Returns the number of proxied (non-{@code CONNECT}) requests
+     */
+    long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of established {@code CONNECT} tunnels
+     */
+    long getTunnels() {
+        return tunnels.get();
+    }
+
+    /**
+     * Returns the number of {@code 407} responses sent
+     */
+    long getAuthChallenges() {
+        return authChallenges.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket client = serverSocket.accept();
+                client.setTcpNoDelay(true);
+                connections.incrementAndGet();
+                executor.execute(() -> handle(client));
+            } catch (IOException e) {
+                // server closed
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        Socket upstream = null;
+        InputStream upstreamIn = null;
+        String upstreamAuthority = null;
+        try {
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            while (!closed) {
+                Message request = Message.read(in);
+                if (request == null) {
+                    return;
+                }
+                String[] requestLine = request.startLine.split(" ");
+                if (expectedAuthorization != null && !expectedAuthorization.equals(request.header("proxy-authorization"))) {
+                    authChallenges.incrementAndGet();
+                    out.write(("HTTP/1.1 407 Proxy Authentication Required\r\n"
+                            + "Proxy-Authenticate: Basic realm=\"local-proxy\"\r\n"
+                            + "Content-Length: 0\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                    continue;
+                }
+                if ("CONNECT".equals(requestLine[0])) {
+                    tunnel(client, requestLine[1]);
+                    return;
+                }
+                URI target = URI.create(requestLine[1]);
+                String authority = target.getHost() + ":" + (target.getPort() == -1 ? 80 : target.getPort());
+                if (upstream == null || !authority.equals(upstreamAuthority)) {
+                    closeQuietly(upstream);
+                    upstream = new Socket(target.getHost(), target.getPort() == -1 ? 80 : target.getPort());
+                    upstream.setTcpNoDelay(true);
+                    upstreamIn = new BufferedInputStream(upstream.getInputStream());
+                    upstreamAuthority = authority;
+                }
+                requests.incrementAndGet();
+                String path = target.getRawPath() == null || target.getRawPath().isEmpty() ? "/" : target.getRawPath();
+                if (target.getRawQuery() != null) {
+                    path += "?" + target.getRawQuery();
+                }
+                request.startLine = requestLine[0] + " " + path + " " + requestLine[2];
+                request.headers.removeIf(header -> header.toLowerCase(Locale.ROOT).startsWith("proxy-"));
+                request.write(upstream.getOutputStream());
+
+                Message response = Message.read(upstreamIn);
+                if (response == null) {
+                    return;
+                }
+                response.write(out);
+            }
+        } catch (IOException e) {
+            // client or upstream went away
+        } finally {
+            closeQuietly(upstream);
+            closeQuietly(client);
+        }
+    }
+
+    private void tunnel(Socket client, String authority) throws IOException {
+        int idx = authority.lastIndexOf(':');
+        try (Socket upstream = new Socket()) {
+            upstream.connect(new InetSocketAddress(authority.substring(0, idx), Integer.parseInt(authority.substring(idx + 1))));
+            tunnels.incrementAndGet();
+            client.getOutputStream().write("HTTP/1.1 200 Connection established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            client.getOutputStream().flush();
+            executor.execute(() -> pipe(upstream, client));
+            pipe(client, upstream);
+        }
+    }
+
+    private static void pipe(Socket from, Socket to) {
+        byte[] buffer = new byte[8192];
+        try {
+            InputStream in = from.getInputStream();
+            OutputStream out = to.getOutputStream();
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // one side closed the tunnel
+        } finally {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * An HTTP/1.1 request or response (start line, headers and {@code Content-Length} delimited body)
+     */
+    static class Message {
+        String startLine;
+        final List<String> headers = new ArrayList<>();
+        byte[] body = new byte[0];
+
+        String header(String name) {
+            for (String header : headers) {
+                int idx = header.indexOf(':');
+                if (idx > 0 && header.substring(0, idx).trim().equalsIgnoreCase(name)) {
+                    return header.substring(idx + 1).trim();
+                }
+            }
+            return null;
+        }
+
+        void write(OutputStream out) throws IOException {
+            StringBuilder head = new StringBuilder(startLine).append("\r\n");
+            for (String header : headers) {
+                head.append(header).append("\r\n");
+            }
+            head.append("\r\n");
+            byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+            byte[] message = Arrays.copyOf(headBytes, headBytes.length + body.length);
+            System.arraycopy(body, 0, message, headBytes.length, body.length);
+            out.write(message);
+            out.flush();
+        }
+
+        static Message read(InputStream in) throws IOException {
+            String line = readLine(in);
+            if (line == null) {
+                return null;
+            }
+            Message message = new Message();
+            message.startLine = line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                message.headers.add(line);
+            }
+            String length = message.header("content-length");
+            if (length != null) {
+                message.body = new byte[Integer.parseInt(length)];
+                int off = 0;
+                while (off < message.body.length) {
+                    int read = in.read(message.body, off, message.body.length - off);
+                    if (read < 0) {
+                        throw new IOException("unexpected end of stream");
+                    }
+                    off += read;
+                }
+            }
+            return message;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            int c;
+            while ((c = in.read()) >= 0) {
+                if (c == '\n') {
+                    byte[] bytes = line.toByteArray();
+                    int len = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                    return new String(bytes, 0, len, StandardCharsets.ISO_8859_1);
+                }
+                line.write(c);
+            }
+            return line.size() == 0 ? null : line.toString("ISO-8859-1");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal in-process SOCKS5 proxy used as a stand-in for real proxies in tests
+ * <p>
+ * Only supports the {@code CONNECT} command without authentication. Records how the last destination was sent
+ * (IP address or domain name), and resolves names registered with {@link #addHost(String, InetAddress)} (other names
+ * are looked up normally).
+ */
+class LocalSocksServer implements Closeable {
+    static final int ATYP_IPV4 = 1;
+    static final int ATYP_DOMAIN = 3;
+    static final int ATYP_IPV6 = 4;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "local-socks");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, InetAddress> hosts = new ConcurrentHashMap<>();
+    private volatile int lastAddressType;
+    private volatile String lastHost;
+    private volatile boolean closed;
+
+    LocalSocksServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptLoop);
+    }
+
+    String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Registers a name only this proxy can resolve
+     */
+    void addHost(String name, InetAddress address) {
+        hosts.put(name, address);
+    }
+
+    /**
+     * Returns the address type of the last {@code CONNECT} request ({@link #ATYP_IPV4}, {@link #ATYP_DOMAIN} or
+     * {@link #ATYP_IPV6})
+     */
+    int getLastAddressType() {
+        return lastAddressType;
+    }
+
+    /**
+     * Returns the destination host (name or IP address) of the last {@code CONNECT} request
+     */
+    String getLastHost() {
+        return lastHost;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket client = serverSocket.accept();
+                executor.execute(() -> handle(client));
+            } catch (IOException e) {
+                // server closed
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try {
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            // greeting: version, methods
+            if (in.readUnsignedByte() != 5) {
+                client.close();
+                return;
+            }
+            in.skipBytes(in.readUnsignedByte());
+            out.write(new byte[]{5, 0});
+            out.flush();
+
+            // request: version, command, reserved, address type, address, port
+            in.readUnsignedByte();
+            int command = in.readUnsignedByte();
+            in.readUnsignedByte();
+            int addressType = in.readUnsignedByte();
+            String host;
+            InetAddress address;
+            if (addressType == ATYP_DOMAIN) {
+                byte[] name = new byte[in.readUnsignedByte()];
+                in.readFully(name);
+                host = new String(name, StandardCharsets.US_ASCII);
+                address = hosts.containsKey(host) ? hosts.get(host) : InetAddress.getByName(host);
+            } else {
+                byte[] ip = new byte[addressType == ATYP_IPV6 ? 16 : 4];
+                in.readFully(ip);
+                address = InetAddress.getByAddress(ip);
+                host = address.getHostAddress();
+            }
+            int port = in.readUnsignedShort();
+            lastAddressType = addressType;
+            lastHost = host;
+            if (command != 1) {
+                out.write(new byte[]{5, 7, 0, 1, 0, 0, 0, 0, 0, 0});
+                client.close();
+                return;
+            }
+            Socket upstream = new Socket();
+            upstream.connect(new InetSocketAddress(address, port));
+            out.write(new byte[]{5, 0, 0, 1, 0, 0, 0, 0, 0, 0});
+            out.flush();
+            executor.execute(() -> pipe(upstream, client));
+            pipe(client, upstream);
+        } catch (IOException e) {
+            closeQuietly(client);
+        }
+    }
+
+    private static void pipe(Socket from, Socket to) {
+        byte[] buffer = new byte[8192];
+        try {
+            InputStream in = from.getInputStream();
+            OutputStream out = to.getOutputStream();
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // one side closed the connection
+        } finally {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MultiProxySelectorTest {
+    private static final Proxy PROXY1 = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("proxy1", 3128));
+    private static final Proxy PROXY2 = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("proxy2", 3128));
+    private static final Proxy PROXY3 = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("proxy3", 3128));
+
+    @Test
+    public void alternates_should_keep_configuration_order_without_stats() throws Exception {
+        MultiProxySelector selector = selector(0, withAlternates().build());
+
+        assertThat(selector.select(new URI("https://www.google.com/"))).containsExactly(PROXY1, PROXY2, PROXY3);
+        assertThat(selector.select(new URI("https://localhost/"))).containsExactly(Proxy.NO_PROXY);
+    }
+
+    @Test
+    public void alternates_should_be_ordered_by_latency() throws Exception {
+        MultiProxySelector selector = selector(0, withAlternates().build());
+        stats(selector, PROXY1).recordSuccess(TimeUnit.MILLISECONDS.toNanos(80));
+        stats(selector, PROXY2).recordSuccess(TimeUnit.MILLISECONDS.toNanos(5));
+        stats(selector, PROXY3).recordSuccess(TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertThat(selector.select(new URI("https://www.google.com/"))).containsExactly(PROXY2, PROXY3, PROXY1);
+    }
+
+    @Test
+    public void failed_proxy_should_be_demoted() throws Exception {
+        MultiProxySelector selector = selector(0, withAlternates().build());
+        URI uri = new URI("https://www.google.com/");
+
+        selector.connectFailed(uri, PROXY1.address(), new ConnectException("connection refused"));
+
+        assertThat(selector.select(uri)).containsExactly(PROXY2, PROXY3, PROXY1);
+    }
+
+    @Test
+    public void exploration_should_promote_other_candidates() throws Exception {
+        MultiProxySelector selector = selector(1, withAlternates().build());
+        URI uri = new URI("https://www.google.com/");
+
+        for (int i = 0; i < 100; i++) {
+            List<Proxy> proxies = selector.select(uri);
+            assertThat(proxies).containsExactlyInAnyOrder(PROXY1, PROXY2, PROXY3);
+            assertThat(proxies.get(0)).isNotEqualTo(PROXY1);
+        }
+    }
+
+    @Test
+    public void direct_fallback_should_be_tried_last_then_used_alone() throws Exception {
+        MultiProxySelector selector = selector(0, withAlternates().fallback("direct").build());
+        URI uri = new URI("https://www.google.com/");
+
+        assertThat(selector.select(uri)).containsExactly(PROXY1, PROXY2, PROXY3, Proxy.NO_PROXY);
+
+        markUnhealthy(selector, PROXY1, PROXY2, PROXY3);
+        assertThat(selector.select(uri)).containsExactly(Proxy.NO_PROXY);
+    }
+
+    @Test
+    public void unhealthy_proxies_should_be_tried_after_healthy_ones() throws Exception {
+        MultiProxySelector selector = selector(0, withAlternates().fallback("direct").build());
+
+        markUnhealthy(selector, PROXY1);
+        assertThat(selector.select(new URI("https://www.google.com/"))).containsExactly(PROXY2, PROXY3, PROXY1, Proxy.NO_PROXY);
+    }
+
+    @Test
+    public void spaced_out_failures_should_not_trigger_the_fallback() throws Exception {
+        MultiProxySelector selector = selector(0, withAlternates().fallback("fail-fast").build());
+        URI uri = new URI("https://www.google.com/");
+        long now = System.nanoTime();
+
+        for (Proxy proxy : Arrays.asList(PROXY1, PROXY2, PROXY3)) {
+            // isolated failures over the process lifetime, more than the retry delay apart
+            for (int i = ProxyStats.UNHEALTHY_THRESHOLD; i > 0; i--) {
+                stats(selector, proxy).recordFailure(now - i * (ProxyStats.RETRY_DELAY_NANOS + TimeUnit.SECONDS.toNanos(1)));
+            }
+            stats(selector, proxy).recordFailure();
+        }
+
+        assertThat(selector.select(uri)).containsExactlyInAnyOrder(PROXY1, PROXY2, PROXY3);
+    }
+
+    @Test
+    public void reported_connections_should_end_consecutive_failures() throws Exception {
+        MultiProxySelector selector = selector(0, withAlternates().fallback("fail-fast").build());
+        URI uri = new URI("https://www.google.com/");
+
+        markUnhealthy(selector, PROXY1, PROXY2, PROXY3);
+        assertThat(selector.select(uri)).containsExactly(MultiProxySelector.FAIL_FAST_PROXY);
+
+        selector.connectSucceeded(PROXY2);
+        assertThat(selector.select(uri)).containsExactly(PROXY2, PROXY1, PROXY3);
+        // another failure doesn't make it unhealthy again
+        stats(selector, PROXY2).recordFailure();
+        assertThat(selector.select(uri).get(0)).isNotEqualTo(MultiProxySelector.FAIL_FAST_PROXY);
+    }
+
+    @Test
+    public void fail_fast_fallback_should_fail_immediately() throws Exception {
+        MultiProxySelector selector = selector(0, withAlternates().fallback("fail-fast").build());
+        URI uri = new URI("https://www.google.com/");
+
+        assertThat(selector.select(uri)).containsExactly(PROXY1, PROXY2, PROXY3);
+
+        markUnhealthy(selector, PROXY1, PROXY2, PROXY3);
+        assertThat(selector.select(uri)).containsExactly(MultiProxySelector.FAIL_FAST_PROXY);
+        assertThatThrownBy(() -> {
+            try (Socket socket = new Socket()) {
+                socket.connect(MultiProxySelector.FAIL_FAST_PROXY.address(), 1000);
+            }
+        }).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void server_fallback_should_use_the_other_server() throws Exception {
+        ProxyServer main = withAlternates().fallback("backup").build();
+        ProxyServer backup = ProxyServer.builder("backup", 8080).name("backup").forHosts("intranet").build();
+        MultiProxySelector selector = selector(0, main, backup);
+        Proxy backupProxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("backup", 8080));
+        URI uri = new URI("https://www.google.com/");
+
+        assertThat(selector.select(uri)).containsExactly(PROXY1, PROXY2, PROXY3, backupProxy);
+
+        markUnhealthy(selector, PROXY1, PROXY2, PROXY3);
+        assertThat(selector.select(uri)).containsExactly(backupProxy);
+    }
+
+    @Test
+    public void fallback_cycles_should_be_rejected() {
+        ProxyServer first = withAlternates().name("first").fallback("second").build();
+        ProxyServer second = withAlternates().name("second").fallback("first").build();
+
+        assertThatThrownBy(() -> selector(0, first, second))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("cycle");
+    }
+
+    @Test
+    public void saturated_proxy_should_spill_over_to_next_candidate() throws Exception {
+        MultiProxySelector selector = selector(0, withAlternates().maxConcurrentConnections(2).build());
+        URI uri = new URI("http://www.google.com/");
+
+        MultiProxySelector.Lease first = selector.acquire(PROXY1);
+        MultiProxySelector.Lease second = selector.acquire(PROXY1);
+        assertThat(selector.select(uri)).containsExactly(PROXY2, PROXY3, PROXY1);
+        assertThat(stats(selector, PROXY1).getSaturations()).isEqualTo(1);
+        // classifying is not a selection
+        selector.classify(Collections.singletonList(uri));
+        assertThat(stats(selector, PROXY1).getSaturations()).isEqualTo(1);
+
+        first.close();
+        // closing twice must not release twice
+        first.close();
+        assertThat(stats(selector, PROXY1).getInFlight()).isEqualTo(1);
+        assertThat(selector.select(uri)).containsExactly(PROXY1, PROXY2, PROXY3);
+        second.close();
+    }
+
+    @Test
+    public void all_saturated_proxies_should_use_the_fallback() throws Exception {
+        ProxyServer.Builder single = ProxyServer.builder("proxy1", 3128).maxConcurrentConnections(1).notForHosts("localhost");
+        URI uri = new URI("http://www.google.com/");
+
+        // the limit is soft: without fallback, saturated proxies are still used
+        MultiProxySelector selector = selector(0, single.build());
+        try (MultiProxySelector.Lease lease = selector.acquire(PROXY1)) {
+            assertThat(selector.select(uri)).containsExactly(PROXY1);
+        }
+        assertThat(stats(selector, PROXY1).getSaturations()).isZero();
+        selector = selector(0, withAlternates().maxConcurrentConnections(1).build());
+        try (MultiProxySelector.Lease lease1 = selector.acquire(PROXY1); MultiProxySelector.Lease lease2 = selector.acquire(PROXY2); MultiProxySelector.Lease lease3 = selector.acquire(PROXY3)) {
+            assertThat(selector.select(uri)).containsExactly(PROXY1, PROXY2, PROXY3);
+        }
+
+        selector = selector(0, single.fallback("fail-fast").build());
+        try (MultiProxySelector.Lease lease = selector.acquire(PROXY1)) {
+            assertThat(selector.select(uri)).containsExactly(MultiProxySelector.FAIL_FAST_PROXY);
+        }
+        assertThat(stats(selector, PROXY1).getSaturations()).isEqualTo(1);
+
+        selector = selector(0, single.fallback("direct").build());
+        try (MultiProxySelector.Lease lease = selector.acquire(PROXY1)) {
+            assertThat(selector.select(uri)).containsExactly(Proxy.NO_PROXY);
+        }
+    }
+
+    @Test
+    public void uris_should_be_classified_by_proxy() throws Exception {
+        MultiProxySelector selector = selector(0,
+                ProxyServer.builder("proxy2", 3128).forHosts(".intranet.acme.com").build(),
+                ProxyServer.builder("proxy1", 3128).notForHosts("localhost").build());
+        List<URI> uris = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            uris.add(new URI("https://www.google.com/search?q=" + i));
+            uris.add(new URI("http://app" + (i % 10) + ".intranet.acme.com/page/" + i));
+            uris.add(new URI("http://LOCALHOST:8080/" + i));
+        }
+
+        Map<Proxy, List<URI>> partition = selector.classify(uris);
+
+        assertThat(partition).containsOnlyKeys(PROXY1, PROXY2, Proxy.NO_PROXY);
+        assertThat(partition.get(PROXY1)).hasSize(1_000).allMatch(uri -> uri.getHost().equals("www.google.com"));
+        assertThat(partition.get(PROXY2)).hasSize(1_000).allMatch(uri -> uri.getHost().endsWith(".intranet.acme.com"));
+        assertThat(partition.get(Proxy.NO_PROXY)).hasSize(1_000);
+        // URIs of a same host keep their order
+        assertThat(partition.get(PROXY1).get(0).getQuery()).isEqualTo("q=0");
+        assertThat(partition.get(PROXY1).get(999).getQuery()).isEqualTo("q=999");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<Proxy, List<URI>> parallel = selector.classify(uris, pool);
+            assertThat(parallel.keySet()).isEqualTo(partition.keySet());
+            for (Proxy proxy : partition.keySet()) {
+                assertThat(parallel.get(proxy)).containsExactlyInAnyOrderElementsOf(partition.get(proxy));
+            }
+            assertThat(parallel.get(PROXY1)).isEqualTo(partition.get(PROXY1));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThatThrownBy(() -> selector.classify(Collections.singletonList(new URI("/relative"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void classification_should_ignore_exploration_and_fallback() throws Exception {
+        // always explores: select() never returns PROXY1 first
+        MultiProxySelector selector = selector(1, withAlternates().fallback("fail-fast").build());
+        List<URI> uris = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            uris.add(new URI("https://host" + i + ".example.com/"));
+        }
+        selector.select(uris.get(0));
+
+        assertThat(selector.classify(uris)).containsOnlyKeys(PROXY1);
+
+        stats(selector, PROXY1).recordSuccess(TimeUnit.MILLISECONDS.toNanos(80));
+        stats(selector, PROXY2).recordSuccess(TimeUnit.MILLISECONDS.toNanos(5));
+        stats(selector, PROXY3).recordSuccess(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(selector.classify(uris)).containsOnlyKeys(PROXY2);
+
+        // all unhealthy: still partitioned by egress proxy, not by the fail-fast sentinel
+        markUnhealthy(selector, PROXY1, PROXY2, PROXY3);
+        assertThat(selector.select(uris.get(0))).containsExactly(MultiProxySelector.FAIL_FAST_PROXY);
+        assertThat(selector.classify(uris).keySet()).hasSize(1).isSubsetOf(PROXY1, PROXY2, PROXY3);
+    }
+
+    @Test
+    public void classification_should_use_the_off_heap_cache() throws Exception {
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(withAlternates().build())
+                .offHeapCache(100)
+                .build();
+        List<URI> uris = Arrays.asList(new URI("https://www.google.com/"), new URI("https://localhost/"));
+        selector.select(uris.get(0));
+
+        assertThat(selector.classify(uris)).containsOnlyKeys(PROXY1, Proxy.NO_PROXY);
+        assertThat(selector.getOffHeapCache().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalid_options_should_be_rejected() {
+        assertThatThrownBy(() -> selector(1.5, withAlternates().build()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("explorationRate");
+        assertThatThrownBy(() -> MultiProxySelector.builder().server(withAlternates().build()).healthCheck(Duration.ZERO, Duration.ofSeconds(1)).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("healthCheck interval must be positive.");
+        assertThatThrownBy(() -> MultiProxySelector.builder().server(withAlternates().build()).healthCheck(Duration.ofNanos(1000), Duration.ofSeconds(1)).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("healthCheck interval must be positive.");
+        assertThatThrownBy(() -> MultiProxySelector.builder().server(withAlternates().build()).healthCheck(Duration.ofSeconds(10), null).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("healthCheck timeout must be positive.");
+        assertThatThrownBy(() -> MultiProxySelector.builder().server(withAlternates().build()).healthCheck(Duration.ofSeconds(10), Duration.ZERO).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("healthCheck timeout must be positive.");
+        assertThatThrownBy(() -> MultiProxySelector.builder().server(withAlternates().build()).offHeapCache(OffHeapSelectionCache.MAX_ENTRIES + 1).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("offHeapCache can't exceed " + OffHeapSelectionCache.MAX_ENTRIES + ".");
+        // checked before the selector (and its off-heap cache) gets built
+        assertThatThrownBy(() -> MultiProxySelector.builder().server(withAlternates().build()).offHeapCache(1024).heavyHitters(10, Duration.ZERO).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("heavyHitters window must be positive.");
+        assertThatThrownBy(() -> MultiProxySelector.builder().server(withAlternates().build()).offHeapCache(1024).candidate(Collections.singletonList(withAlternates().build()), 2, 16).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("candidate sampleRate must be between 0 and 1.");
+    }
+
+    private static void markUnhealthy(MultiProxySelector selector, Proxy... proxies) {
+        for (Proxy proxy : proxies) {
+            for (int i = 0; i < ProxyStats.UNHEALTHY_THRESHOLD; i++) {
+                stats(selector, proxy).recordFailure();
+            }
+        }
+    }
+
+    private static ProxyStats stats(MultiProxySelector selector, Proxy proxy) {
+        return selector.getProxyStats().stream().filter(stats -> stats.getProxy().equals(proxy)).findFirst().orElseThrow(IllegalStateException::new);
+    }
+
+    private static MultiProxySelector selector(double explorationRate, ProxyServer... servers) {
+        return MultiProxySelector.builder().servers(Arrays.asList(servers)).explorationRate(explorationRate).build();
+    }
+
+    private static ProxyServer.Builder withAlternates() {
+        return ProxyServer.builder("proxy1", 3128)
+                .alternates("proxy2:3128", "proxy3:3128")
+                .notForHosts("localhost");
+    }
+}
@@ -0,0 +1,134 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.PasswordAuthentication;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MultiServerAuthenticatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final MultiServerAuthenticator authenticator = new MultiServerAuthenticator(3, Duration.ofSeconds(10), Duration.ofSeconds(30), clock::get);
+
+    @Test
+    public void unknown_server_should_not_be_authenticated() {
+        assertThat(authenticator.authenticate("unknown:3128")).isNull();
+        assertThat(authenticator.getChallengeStats()).isEmpty();
+    }
+
+    @Test
+    public void repeated_challenges_should_withhold_credentials() {
+        List<String> backoffs = new ArrayList<>();
+        authenticator.setBackoffListener((host, stats) -> backoffs.add(host));
+        authenticator.add("proxy:3128", "user", "secret");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(authenticator.authenticate("proxy:3128")).isNotNull();
+            clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        }
+        // 4th challenge within 10s: credentials are rejected
+        assertThat(authenticator.authenticate("proxy:3128")).isNull();
+        assertThat(authenticator.authenticate("proxy:3128")).isNull();
+
+        MultiServerAuthenticator.ChallengeStats stats = authenticator.getChallengeStats().get("proxy:3128");
+        assertThat(stats.isBackingOff()).isTrue();
+        assertThat(stats.getChallenges()).isEqualTo(5);
+        assertThat(stats.getBackoffs()).isEqualTo(1);
+        assertThat(stats.getWithheld()).isEqualTo(2);
+        assertThat(backoffs).containsExactly("proxy:3128");
+
+        // backoff elapsed: credentials are offered again
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertThat(authenticator.authenticate("proxy:3128")).isNotNull();
+        assertThat(stats.isBackingOff()).isFalse();
+    }
+
+    @Test
+    public void sparse_challenges_should_not_withhold_credentials() {
+        authenticator.add("proxy:3128", "user", "secret");
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(authenticator.authenticate("proxy:3128")).isNotNull();
+            clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        }
+        assertThat(authenticator.getChallengeStats().get("proxy:3128").getBackoffs()).isZero();
+    }
+
+    @Test
+    public void new_credentials_should_reset_backoff() {
+        authenticator.add("proxy:3128", "user", "expired");
+        for (int i = 0; i < 4; i++) {
+            authenticator.authenticate("proxy:3128");
+        }
+        assertThat(authenticator.authenticate("proxy:3128")).isNull();
+
+        authenticator.add("proxy:3128", "user", "renewed");
+
+        assertThat(authenticator.authenticate("proxy:3128").getPassword()).isEqualTo("renewed".toCharArray());
+    }
+
+    @Test
+    public void credentials_files_should_be_reloaded_when_rotated() throws Exception {
+        Path username = write("username", "user\n");
+        Path password = write("password", "expired\n");
+        try {
+            authenticator.addFromFiles("proxy:3128", null, username, password);
+            assertThat(authenticator.authenticate("proxy:3128").getUserName()).isEqualTo("user");
+            assertThat(authenticator.authenticate("proxy:3128").getPassword()).isEqualTo("expired".toCharArray());
+            // expired password: backoff
+            authenticator.authenticate("proxy:3128");
+            authenticator.authenticate("proxy:3128");
+            assertThat(authenticator.authenticate("proxy:3128")).isNull();
+
+            // rotation (Kubernetes-like: the secret file is replaced)
+            Path rotated = write("password.new", "renewed");
+            Files.move(rotated, password, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            PasswordAuthentication credentials = authenticator.authenticate("proxy:3128");
+            while ((credentials == null || !new String(credentials.getPassword()).equals("renewed")) && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+                credentials = authenticator.authenticate("proxy:3128");
+            }
+            assertThat(credentials.getUserName()).isEqualTo("user");
+            assertThat(credentials.getPassword()).isEqualTo("renewed".toCharArray());
+            assertThat(authenticator.getChallengeStats().get("proxy:3128").isBackingOff()).isFalse();
+        } finally {
+            authenticator.close();
+        }
+    }
+
+    @Test
+    public void empty_credentials_file_should_keep_previous_credentials() throws Exception {
+        Path password = write("password", "secret");
+        try {
+            authenticator.addFromFiles("proxy:3128", "user", null, password);
+            Files.write(password, new byte[0]);
+            // let the watcher process the change
+            Thread.sleep(500);
+            assertThat(authenticator.authenticate("proxy:3128").getPassword()).isEqualTo("secret".toCharArray());
+        } finally {
+            authenticator.close();
+        }
+    }
+
+    private Path write(String name, String content) throws Exception {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
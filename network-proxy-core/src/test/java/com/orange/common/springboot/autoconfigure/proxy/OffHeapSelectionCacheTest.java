@@ -0,0 +1,156 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OffHeapSelectionCacheTest {
+    @Test
+    public void cached_indexes_should_be_returned() {
+        OffHeapSelectionCache cache = new OffHeapSelectionCache(100);
+        long key1 = OffHeapSelectionCache.hash("http", "www.acme.com");
+        int check1 = OffHeapSelectionCache.check("http", "www.acme.com");
+        long key2 = OffHeapSelectionCache.hash("https", "www.acme.com");
+        int check2 = OffHeapSelectionCache.check("https", "www.acme.com");
+
+        assertThat(key1).isNotEqualTo(key2);
+        assertThat(check1).isNotEqualTo(check2);
+        assertThat(cache.get(key1, check1)).isEqualTo(OffHeapSelectionCache.MISS);
+        cache.put(key1, check1, 3);
+        cache.put(key2, check2, -1);
+        assertThat(cache.get(key1, check1)).isEqualTo(3);
+        assertThat(cache.get(key2, check2)).isEqualTo(-1);
+        assertThat(cache.size()).isEqualTo(2);
+
+        cache.clear();
+        assertThat(cache.get(key1, check1)).isEqualTo(OffHeapSelectionCache.MISS);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void cache_should_stay_bounded_and_consistent() {
+        OffHeapSelectionCache cache = new OffHeapSelectionCache(5_000);
+        Map<String, Integer> model = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            String host = "host" + random.nextInt(20_000) + ".acme.com";
+            long key = OffHeapSelectionCache.hash("http", host);
+            int check = OffHeapSelectionCache.check("http", host);
+            int cached = cache.get(key, check);
+            if (cached == OffHeapSelectionCache.MISS) {
+                int index = random.nextInt(10) - 1;
+                cache.put(key, check, index);
+                model.put(host, index);
+            } else {
+                // evicted entries may be missing, but never wrong (even after backward shifts)
+                assertThat(cached).isEqualTo(model.get(host));
+            }
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(5_000);
+        assertThat(cache.getEvictions()).isPositive();
+    }
+
+    @Test
+    public void recurring_hosts_should_survive_one_time_hosts() {
+        OffHeapSelectionCache cache = new OffHeapSelectionCache(1_000);
+        long recurring = OffHeapSelectionCache.hash("https", "api.acme.com");
+        int check = OffHeapSelectionCache.check("https", "api.acme.com");
+        cache.put(recurring, check, 1);
+        for (int i = 0; i < 100_000; i++) {
+            // hit between each scan of the clock hand
+            assertThat(cache.get(recurring, check)).isEqualTo(1);
+            String host = "crawled" + i + ".example.com";
+            cache.put(OffHeapSelectionCache.hash("https", host), OffHeapSelectionCache.check("https", host), -1);
+        }
+    }
+
+    @Test
+    public void colliding_hashes_should_not_return_another_host_entry() {
+        OffHeapSelectionCache cache = new OffHeapSelectionCache(100);
+        long key = OffHeapSelectionCache.hash("https", "www.acme.com");
+        cache.put(key, 1, 2);
+        // same 64-bit hash, other host
+        cache.put(key, 2, -1);
+
+        assertThat(cache.get(key, 1)).isEqualTo(2);
+        assertThat(cache.get(key, 2)).isEqualTo(-1);
+        assertThat(cache.get(key, 3)).isEqualTo(OffHeapSelectionCache.MISS);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void oversized_cache_should_be_rejected() {
+        assertThatThrownBy(() -> new OffHeapSelectionCache(OffHeapSelectionCache.MAX_ENTRIES + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MultiProxySelector.builder()
+                .server(ProxyServer.builder("proxy", 3128).forHosts(".acme.com").build())
+                .offHeapCache(Integer.MAX_VALUE)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void concurrent_reads_should_never_return_wrong_entries() throws Exception {
+        OffHeapSelectionCache cache = new OffHeapSelectionCache(2_000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                tasks.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 200_000; i++) {
+                        // the cached index is derived from the host: evictions and shifts of other threads can't alter it
+                        int n = random.nextInt(10_000);
+                        String host = "host" + n + ".acme.com";
+                        long key = OffHeapSelectionCache.hash("http", host);
+                        int check = OffHeapSelectionCache.check("http", host);
+                        int cached = cache.get(key, check);
+                        if (cached == OffHeapSelectionCache.MISS) {
+                            cache.put(key, check, n % 7 - 1);
+                        } else {
+                            assertThat(cached).isEqualTo(n % 7 - 1);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(2_000);
+    }
+
+    @Test
+    public void selector_should_use_off_heap_cache() throws Exception {
+        Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("proxy", 3128));
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("proxy", 3128).notForHosts("localhost", ".intranet.acme.com").build())
+                .offHeapCache(1_000)
+                .build();
+
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(selector.select(new URI("http://host" + i + ".example.com/"))).containsExactly(proxy);
+            assertThat(selector.select(new URI("http://host" + i + ".intranet.acme.com/"))).containsExactly(Proxy.NO_PROXY);
+        }
+        assertThat(selector.select(new URI("HTTP://LOCALHOST:8080/"))).containsExactly(Proxy.NO_PROXY);
+        assertThat(selector.getOffHeapCache().size()).isLessThanOrEqualTo(1_000);
+        assertThat(selector.getOffHeapCache().getEvictions()).isPositive();
+    }
+}
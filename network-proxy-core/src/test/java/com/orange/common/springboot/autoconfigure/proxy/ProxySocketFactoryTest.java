@@ -0,0 +1,149 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.SocketFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProxySocketFactoryTest {
+    private ServerSocket echo;
+    private LocalSocksServer socks;
+
+    @Before
+    public void start() throws IOException {
+        echo = new ServerSocket(0, 16, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(() -> {
+            while (!echo.isClosed()) {
+                try (Socket socket = echo.accept()) {
+                    String line = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+                    socket.getOutputStream().write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        }, "echo");
+        thread.setDaemon(true);
+        thread.start();
+        socks = new LocalSocksServer();
+        // a name only the proxy can resolve
+        socks.addHost("echo.socks.test", InetAddress.getLoopbackAddress());
+    }
+
+    @After
+    public void stop() throws IOException {
+        echo.close();
+        socks.close();
+    }
+
+    private SocketFactory socketFactory(boolean remoteDns) {
+        return MultiProxySelector.builder()
+                .server(ProxyServer.builder(socks.getHost(), socks.getPort())
+                        .type(Proxy.Type.SOCKS)
+                        .forHosts(".socks.test", "localhost")
+                        .forProtocols(Collections.singletonList("ldap"))
+                        .remoteDns(remoteDns)
+                        .build())
+                .build()
+                .socketFactory("ldap");
+    }
+
+    @Test
+    public void remote_dns_should_send_hostnames_unresolved() throws IOException {
+        try (Socket socket = socketFactory(true).createSocket("echo.socks.test", echo.getLocalPort())) {
+            assertThat(roundTrip(socket)).isEqualTo("hello");
+        }
+        assertThat(socks.getLastAddressType()).isEqualTo(LocalSocksServer.ATYP_DOMAIN);
+        assertThat(socks.getLastHost()).isEqualTo("echo.socks.test");
+    }
+
+    @Test
+    public void remote_dns_should_only_skip_actual_ip_literals() throws IOException {
+        // an all-digit hostname is not an IP literal
+        socks.addHost("1234", InetAddress.getLoopbackAddress());
+        SocketFactory socketFactory = MultiProxySelector.builder()
+                .server(ProxyServer.builder(socks.getHost(), socks.getPort())
+                        .type(Proxy.Type.SOCKS)
+                        .forHosts("1234", "127.0.0.1")
+                        .forProtocols(Collections.singletonList("ldap"))
+                        .remoteDns(true)
+                        .build())
+                .build()
+                .socketFactory("ldap");
+
+        try (Socket socket = socketFactory.createSocket("1234", echo.getLocalPort())) {
+            assertThat(roundTrip(socket)).isEqualTo("hello");
+        }
+        assertThat(socks.getLastAddressType()).isEqualTo(LocalSocksServer.ATYP_DOMAIN);
+        assertThat(socks.getLastHost()).isEqualTo("1234");
+
+        try (Socket socket = socketFactory.createSocket("127.0.0.1", echo.getLocalPort())) {
+            assertThat(roundTrip(socket)).isEqualTo("hello");
+        }
+        assertThat(socks.getLastAddressType()).isNotEqualTo(LocalSocksServer.ATYP_DOMAIN);
+    }
+
+    @Test
+    public void hostnames_should_be_resolved_locally_by_default() throws IOException {
+        try (Socket socket = socketFactory(false).createSocket("localhost", echo.getLocalPort())) {
+            assertThat(roundTrip(socket)).isEqualTo("hello");
+        }
+        assertThat(socks.getLastAddressType()).isNotEqualTo(LocalSocksServer.ATYP_DOMAIN);
+    }
+
+    @Test
+    public void direct_connections_should_not_use_the_proxy() throws IOException {
+        try (Socket socket = socketFactory(true).createSocket(InetAddress.getLoopbackAddress().getHostAddress(), echo.getLocalPort())) {
+            assertThat(roundTrip(socket)).isEqualTo("hello");
+        }
+        assertThat(socks.getLastHost()).isNull();
+    }
+
+    @Test
+    public void sockets_should_count_as_in_flight_connections() throws IOException {
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder(socks.getHost(), socks.getPort())
+                        .type(Proxy.Type.SOCKS)
+                        .forHosts("localhost")
+                        .forProtocols(Collections.singletonList("ldap"))
+                        .maxConcurrentConnections(10)
+                        .build())
+                .build();
+        ProxyStats stats = selector.getProxyStats().iterator().next();
+
+        try (Socket socket = selector.socketFactory("ldap").createSocket("localhost", echo.getLocalPort())) {
+            assertThat(roundTrip(socket)).isEqualTo("hello");
+            assertThat(stats.getInFlight()).isEqualTo(1);
+        }
+        assertThat(stats.getInFlight()).isZero();
+    }
+
+    @Test
+    public void remote_dns_should_require_a_socks_proxy() {
+        assertThatThrownBy(() -> MultiProxySelector.builder()
+                .server(ProxyServer.builder("10.0.0.1", 3128).forHosts(".acme.com").remoteDns(true).build())
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("remoteDns");
+    }
+
+    private static String roundTrip(Socket socket) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write("hello\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+    }
+}
@@ -0,0 +1,119 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProxyWarmUpTest {
+    private static final byte[] BODY = "hello".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer origin;
+    private URI uri;
+    private ProxySelector previousSelector;
+    private Authenticator previousAuthenticator;
+
+    @Before
+    public void startOrigin() throws Exception {
+        previousSelector = ProxySelector.getDefault();
+        previousAuthenticator = DefaultAuthenticator.get();
+        origin = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16);
+        origin.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(BODY);
+            }
+        });
+        origin.start();
+        uri = new URI("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + origin.getAddress().getPort() + "/health");
+    }
+
+    @After
+    public void stopOrigin() {
+        origin.stop(0);
+        ProxySelector.setDefault(previousSelector);
+        Authenticator.setDefault(previousAuthenticator);
+    }
+
+    @Test
+    public void first_requests_should_reuse_warmed_up_connections() throws Exception {
+        try (LocalProxyServer proxy = new LocalProxyServer("login", "password")) {
+            MultiProxySelector selector = MultiProxySelector.builder()
+                    .server(ProxyServer.builder(proxy.getHost(), proxy.getPort()).forHosts(uri.getHost()).build())
+                    .heavyHitters(4, Duration.ofHours(1))
+                    .build();
+            MultiServerAuthenticator authenticator = new MultiServerAuthenticator();
+            authenticator.add(proxy.getHost() + ":" + proxy.getPort(), "login", "password");
+            ProxySelector.setDefault(selector);
+            Authenticator.setDefault(authenticator);
+
+            assertThat(ProxyWarmUp.warmUp(selector, Collections.singletonList(uri), 3, Duration.ofSeconds(5))).isEqualTo(3);
+            // the JDK may drop the connection that got the 407 challenge
+            int warmedUp = proxy.getConnections();
+            assertThat(warmedUp).isBetween(3, 4);
+            long challenges = proxy.getAuthChallenges();
+            assertThat(challenges).isPositive();
+            // warm-up is not application traffic
+            assertThat(selector.getTopDestinations().values()).allMatch(List::isEmpty);
+
+            // 3 concurrent requests: no new connection, no 407
+            List<HttpURLConnection> connections = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+                assertThat(connection.getResponseCode()).isEqualTo(200);
+                connections.add(connection);
+            }
+            for (HttpURLConnection connection : connections) {
+                try (InputStream body = connection.getInputStream()) {
+                    while (body.read() >= 0) {
+                        // drain
+                    }
+                }
+            }
+            assertThat(proxy.getConnections()).isEqualTo(warmedUp);
+            assertThat(proxy.getAuthChallenges()).isEqualTo(challenges);
+            assertThat(selector.getTopDestinations().values()).flatExtracting(destinations -> destinations)
+                    .extracting(DestinationSketch.Destination::getCount).containsExactly(3L);
+        }
+    }
+
+    @Test
+    public void rejected_credentials_should_not_fail_the_warm_up() throws Exception {
+        try (LocalProxyServer proxy = new LocalProxyServer("login", "password")) {
+            MultiProxySelector selector = MultiProxySelector.builder()
+                    .server(ProxyServer.builder(proxy.getHost(), proxy.getPort()).forHosts(uri.getHost()).build())
+                    .build();
+            MultiServerAuthenticator authenticator = new MultiServerAuthenticator();
+            authenticator.add(proxy.getHost() + ":" + proxy.getPort(), "login", "expired");
+            Authenticator.setDefault(authenticator);
+
+            assertThat(ProxyWarmUp.warmUp(selector, Collections.singletonList(uri), 3, Duration.ofSeconds(5))).isZero();
+            assertThat(proxy.getRequests()).isZero();
+        }
+    }
+
+    @Test
+    public void direct_connections_should_not_be_warmed_up() throws Exception {
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("10.0.0.1", 3128).forHosts("www.acme.com").build())
+                .build();
+
+        assertThat(ProxyWarmUp.warmUp(selector, Collections.singletonList(uri), 3, Duration.ofSeconds(1))).isZero();
+    }
+}
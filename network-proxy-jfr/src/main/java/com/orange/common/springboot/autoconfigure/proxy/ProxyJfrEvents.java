@@ -0,0 +1,141 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.net.Proxy;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Java Flight Recorder events (only loaded reflectively by {@link ProxyEvents}, when JFR is available)
+ * <p>
+ * Selection and authentication events are timed, with default thresholds that keep recordings (and the cost of
+ * committing events) low: override them in a JFR configuration to record every event, e.g. with
+ * {@code -XX:StartFlightRecording:settings=my.jfc} or {@code Recording.enable("network.proxy.Select").withoutThreshold()}.
+ * <p>
+ * No event object is created unless its type is enabled in a running recording.
+ */
+final class ProxyJfrEvents implements ProxyEvents.Recorder {
+    private final EventType selectType = EventType.getEventType(SelectEvent.class);
+    private final EventType connectFailedType = EventType.getEventType(ConnectFailedEvent.class);
+    private final EventType authenticationType = EventType.getEventType(AuthenticationEvent.class);
+
+    ProxyJfrEvents() {
+    }
+
+    @Name("network.proxy.Select")
+    @Label("Proxy Selection")
+    @Description("Proxies selected for a URI")
+    @Category({"Network", "Proxy"})
+    // selections answered from the cache take well under a microsecond and are never recorded at this threshold:
+    // only slow selections (cache misses on large rule sets, contended cache) are, which is what recordings are for
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static class SelectEvent extends Event {
+        @Label("Protocol")
+        String protocol;
+        @Label("Host")
+        String host;
+        @Label("Cache Hit")
+        @Description("Whether the proxies were resolved from the selection cache")
+        boolean cacheHit;
+        @Label("Proxies")
+        String proxies;
+    }
+
+    @Name("network.proxy.ConnectFailed")
+    @Label("Proxy Connect Failed")
+    @Description("Connection failure reported by the JDK for a selected proxy")
+    @Category({"Network", "Proxy"})
+    static class ConnectFailedEvent extends Event {
+        @Label("URI")
+        String uri;
+        @Label("Proxy Address")
+        String address;
+        @Label("Failure")
+        String failure;
+    }
+
+    @Name("network.proxy.Authentication")
+    @Label("Proxy Authentication")
+    @Description("Authentication challenge from a proxy")
+    @Category({"Network", "Proxy"})
+    @Threshold("0 ms")
+    @StackTrace(false)
+    static class AuthenticationEvent extends Event {
+        @Label("Proxy")
+        String proxy;
+        @Label("User")
+        String user;
+        @Label("Outcome")
+        @Description("Credentials provided, withheld (backoff) or none")
+        String outcome;
+    }
+
+    @Override
+    public Object beginSelect() {
+        if (!selectType.isEnabled()) {
+            return null;
+        }
+        SelectEvent event = new SelectEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitSelect(Object token, String protocol, String host, boolean cacheHit, List<Proxy> proxies) {
+        SelectEvent event = (SelectEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.protocol = protocol;
+            event.host = host;
+            event.cacheHit = cacheHit;
+            event.proxies = proxies.toString();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void connectFailed(URI uri, SocketAddress address, Exception failure) {
+        if (!connectFailedType.isEnabled()) {
+            return;
+        }
+        ConnectFailedEvent event = new ConnectFailedEvent();
+        if (event.shouldCommit()) {
+            event.uri = String.valueOf(uri);
+            event.address = String.valueOf(address);
+            event.failure = failure == null ? null : failure.toString();
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginAuthentication() {
+        if (!authenticationType.isEnabled()) {
+            return null;
+        }
+        AuthenticationEvent event = new AuthenticationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitAuthentication(Object token, String proxy, String user, String outcome) {
+        AuthenticationEvent event = (AuthenticationEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.proxy = proxy;
+            event.user = user;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class ProxyEventsTest {
+    @Before
+    public void checkJfr() {
+        assumeTrue("JFR not available", ProxyEvents.ENABLED);
+    }
+
+    @Test
+    public void selection_and_connect_failures_should_be_recorded() throws Exception {
+        MultiProxySelector selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("proxy", 3128).forHosts(".acme.com").build())
+                .build();
+
+        List<RecordedEvent> events = record(() -> {
+            selector.select(new URI("http://www.acme.com/"));
+            selector.select(new URI("http://www.acme.com/"));
+            selector.connectFailed(new URI("http://www.acme.com/"), InetSocketAddress.createUnresolved("proxy", 3128), new IOException("refused"));
+        });
+
+        List<RecordedEvent> selections = byName(events, "network.proxy.Select");
+        assertThat(selections).hasSize(2);
+        assertThat(selections.get(0).getString("host")).isEqualTo("www.acme.com");
+        assertThat(selections.get(0).getString("protocol")).isEqualTo("http");
+        assertThat(selections.get(0).getBoolean("cacheHit")).isFalse();
+        assertThat(selections.get(0).getString("proxies")).contains("proxy");
+        assertThat(selections.get(1).getBoolean("cacheHit")).isTrue();
+
+        List<RecordedEvent> failures = byName(events, "network.proxy.ConnectFailed");
+        assertThat(failures).hasSize(1);
+        assertThat(failures.get(0).getString("uri")).isEqualTo("http://www.acme.com/");
+        assertThat(failures.get(0).getString("failure")).contains("refused");
+    }
+
+    @Test
+    public void authentications_should_be_recorded() throws Exception {
+        MultiServerAuthenticator authenticator = new MultiServerAuthenticator(1, Duration.ofSeconds(10), Duration.ofSeconds(30));
+        authenticator.add("proxy:3128", "user", "secret");
+
+        List<RecordedEvent> events = byName(record(() -> {
+            authenticator.authenticate("unknown:3128");
+            authenticator.authenticate("proxy:3128");
+            authenticator.authenticate("proxy:3128");
+        }), "network.proxy.Authentication");
+
+        assertThat(events).extracting(e -> e.getString("outcome")).containsExactly("none", "provided", "withheld");
+        assertThat(events).extracting(e -> e.getString("proxy")).containsExactly("unknown:3128", "proxy:3128", "proxy:3128");
+        assertThat(events.get(1).getString("user")).isEqualTo("user");
+    }
+
+    private interface Action {
+        void run() throws Exception;
+    }
+
+    private static List<RecordedEvent> record(Action action) throws Exception {
+        Path dump = Files.createTempFile("proxy-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("network.proxy.Select").withoutThreshold();
+            recording.enable("network.proxy.ConnectFailed");
+            recording.enable("network.proxy.Authentication").withoutThreshold();
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(dump);
+            return RecordingFile.readAllEvents(dump);
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    private static List<RecordedEvent> byName(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .sorted((e1, e2) -> e1.getStartTime().compareTo(e2.getStartTime()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,121 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureOrder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.ProxySelector;
+
+@Configuration
+@AutoConfigureOrder(Ordered.HIGHEST_PRECEDENCE)
+@AutoConfigureAfter(PropertyPlaceholderAutoConfiguration.class)
+@ConditionalOnProperty(prefix = "network.proxy", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(NetworkProxyProperties.class)
+public class NetworkProxyAutoConfiguration implements ApplicationEventPublisherAware {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NetworkProxyAutoConfiguration.class);
+
+    private final NetworkProxyProperties properties;
+
+    private MultiProxySelector selector;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private MultiServerAuthenticator authenticator;
+
+    private NetworkProxyInstaller installer;
+
+    public NetworkProxyAutoConfiguration(NetworkProxyProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Returns the proxy selector ({@code null} unless proxies are configured with Spring Boot configuration)
+     */
+    public MultiProxySelector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Returns the proxy authenticator (whether installed or not)
+     */
+    public MultiServerAuthenticator getAuthenticator() {
+        return authenticator;
+    }
+
+    @PostConstruct
+    public void setupProxyConfiguration() {
+        NetworkProxyInstaller installer = NetworkProxyInstaller.takeEarly(properties);
+        if (installer != null) {
+            LOGGER.info("Using the network proxy configuration installed at startup");
+        } else {
+            installer = NetworkProxyInstaller.install(properties);
+        }
+        this.installer = installer;
+        selector = installer.getSelector();
+        MultiServerAuthenticator msa = installer.getAuthenticator();
+        if (eventPublisher != null) {
+            msa.setBackoffListener((host, stats) -> eventPublisher.publishEvent(new ProxyAuthenticationBackoffEvent(msa, host, stats)));
+        }
+        authenticator = msa;
+    }
+
+    /**
+     * Warms up connections once the context is started, right before the application is ready (the JDK closes idle
+     * connections after a few seconds: warming them up during the context refresh would be too early)
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmUpConnections() {
+        // blocks the application readiness until connections are warmed up
+        NetworkProxyProperties.WarmUp warmUp = properties.getWarmUp();
+        if (!warmUp.getUrls().isEmpty()) {
+            ProxyWarmUp.warmUp(ProxySelector.getDefault(), warmUp.getUrls(), warmUp.getConnections(), warmUp.getTimeout());
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(MeterBinder.class)
+    static class NetworkProxyMetricsConfiguration {
+        @Bean
+        public NetworkProxyMetrics networkProxyMetrics(NetworkProxyAutoConfiguration proxyConfiguration, NetworkProxyProperties properties) {
+            return new NetworkProxyMetrics(proxyConfiguration.getAuthenticator(), proxyConfiguration.getSelector(), properties.getHeavyHitters().getWindow(), properties.getHeavyHitters().isHostTag());
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(OkHttpClient.class)
+    static class NetworkProxyOkHttpConfiguration {
+        @Bean
+        public NetworkProxyOkHttpCustomizer networkProxyOkHttpCustomizer(NetworkProxyAutoConfiguration proxyConfiguration, NetworkProxyProperties properties) {
+            boolean trackConnections = properties.getServers().stream().anyMatch(cfg -> cfg.getMaxConcurrentConnections() != null);
+            return new NetworkProxyOkHttpCustomizer(proxyConfiguration.getSelector(), proxyConfiguration.getAuthenticator(), trackConnections);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (installer != null) {
+            installer.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.config.ConfigFileApplicationListener;
+import org.springframework.boot.context.event.ApplicationFailedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.boot.logging.DeferredLog;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+import java.util.Collections;
+
+/**
+ * Installs the network proxy configuration as soon as the environment is prepared (right after the application
+ * configuration files are loaded), before any bean is created
+ * <p>
+ * Binds {@code network.proxy.*} directly (the {@link NetworkProxyAutoConfiguration} then adopts the installed
+ * configuration). Any failure (including invalid properties) is only logged: the configuration is then installed, and
+ * errors reported, by the auto-configuration.
+ * <p>
+ * Disabled with {@code network.proxy.install-early=false}, and skipped when the auto-configuration is disabled
+ * ({@code network.proxy.enabled=false}) or excluded with {@code spring.autoconfigure.exclude}. If the configuration
+ * installed early is never handed over (e.g. the application fails to start, or the auto-configuration is excluded
+ * with {@code @EnableAutoConfiguration(exclude = ...)}), its health checks and files watching are stopped when the
+ * application fails or its context is closed.
+ */
+public class NetworkProxyEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered, ApplicationListener<ApplicationEvent> {
+    /**
+     * Right after {@link ConfigFileApplicationListener}
+     */
+    public static final int ORDER = ConfigFileApplicationListener.DEFAULT_ORDER + 1;
+
+    // the logging system is not initialized yet
+    private static final DeferredLog LOGGER = new DeferredLog();
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty("network.proxy.enabled", Boolean.class, true)
+                || !environment.getProperty("network.proxy.install-early", Boolean.class, true)
+                || isExcluded(environment)) {
+            return;
+        }
+        try {
+            NetworkProxyProperties properties = Binder.get(environment)
+                    .bind("network.proxy", NetworkProxyProperties.class)
+                    .orElseGet(NetworkProxyProperties::new);
+            Errors errors = new BeanPropertyBindingResult(properties, "network.proxy");
+            properties.validate(properties, errors);
+            if (errors.hasErrors()) {
+                LOGGER.warn("Invalid network proxy configuration: not installed early (" + errors.getErrorCount() + " error(s))");
+                return;
+            }
+            NetworkProxyInstaller.installEarly(properties);
+            LOGGER.info("Network proxy configuration installed early");
+        } catch (RuntimeException e) {
+            LOGGER.warn("Network proxy configuration could not be installed early", e);
+        }
+    }
+
+    private static boolean isExcluded(ConfigurableEnvironment environment) {
+        return Binder.get(environment)
+                .bind("spring.autoconfigure.exclude", Bindable.listOf(String.class))
+                .orElse(Collections.emptyList())
+                .stream()
+                .anyMatch(name -> NetworkProxyAutoConfiguration.class.getName().equals(name.trim()));
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationPreparedEvent) {
+            LOGGER.replayTo(NetworkProxyEnvironmentPostProcessor.class);
+        } else if (event instanceof ApplicationFailedEvent || event instanceof ContextClosedEvent) {
+            LOGGER.replayTo(NetworkProxyEnvironmentPostProcessor.class);
+            NetworkProxyInstaller.closeEarly();
+        }
+    }
+}
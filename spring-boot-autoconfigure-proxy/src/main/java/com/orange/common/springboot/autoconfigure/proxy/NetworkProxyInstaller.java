@@ -0,0 +1,246 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Installs the network proxy configuration: the default {@link ProxySelector} (or the proxy system properties) and the
+ * default {@link Authenticator}
+ * <p>
+ * The configuration is installed as early as possible by {@link NetworkProxyEnvironmentPostProcessor}, then handed
+ * over to {@link NetworkProxyAutoConfiguration} (which installs it itself if it wasn't, or if the properties have
+ * changed in between).
+ */
+final class NetworkProxyInstaller implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NetworkProxyInstaller.class);
+    private static final String[] PROTOCOLS = {"http", "https", "ftp"};
+
+    private static final AtomicReference<NetworkProxyInstaller> EARLY = new AtomicReference<>();
+
+    private final String fingerprint;
+    private final MultiProxySelector selector;
+    private final MultiServerAuthenticator authenticator;
+
+    private NetworkProxyInstaller(String fingerprint, MultiProxySelector selector, MultiServerAuthenticator authenticator) {
+        this.fingerprint = fingerprint;
+        this.selector = selector;
+        this.authenticator = authenticator;
+    }
+
+    /**
+     * Returns the proxy selector ({@code null} unless proxies are configured with Spring Boot configuration)
+     */
+    MultiProxySelector getSelector() {
+        return selector;
+    }
+
+    MultiServerAuthenticator getAuthenticator() {
+        return authenticator;
+    }
+
+    /**
+     * Installs the configuration before the application context starts (unless already installed with the same
+     * properties)
+     */
+    static void installEarly(NetworkProxyProperties properties) {
+        NetworkProxyInstaller current = EARLY.get();
+        if (current != null && current.fingerprint.equals(fingerprint(properties))) {
+            return;
+        }
+        NetworkProxyInstaller previous = EARLY.getAndSet(install(properties));
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Hands the configuration installed early over to the caller, if installed with the same properties
+     *
+     * @return the installer, or {@code null} if the configuration has to be installed again
+     */
+    static NetworkProxyInstaller takeEarly(NetworkProxyProperties properties) {
+        NetworkProxyInstaller early = EARLY.getAndSet(null);
+        if (early == null) {
+            return null;
+        }
+        if (early.fingerprint.equals(fingerprint(properties))) {
+            return early;
+        }
+        // properties have changed since (e.g. added by a config server): the configuration will be replaced
+        early.close();
+        return null;
+    }
+
+    /**
+     * Stops the configuration installed early if it was never handed over (the configuration stays installed)
+     */
+    static void closeEarly() {
+        NetworkProxyInstaller early = EARLY.getAndSet(null);
+        if (early != null) {
+            LOGGER.info("Network proxy configuration installed early was not handed over: stopping its health checks and files watching");
+            early.close();
+        }
+    }
+
+    /**
+     * Identifies the properties, credentials included (never logged)
+     */
+    private static String fingerprint(NetworkProxyProperties properties) {
+        StringBuilder fingerprint = new StringBuilder(properties.toString());
+        for (NetworkProxyProperties.ProxyServerConfig cfg : properties.getServers()) {
+            fingerprint.append('\n').append(cfg.getPassword());
+        }
+        return fingerprint.toString();
+    }
+
+    static NetworkProxyInstaller install(NetworkProxyProperties properties) {
+        NetworkProxyProperties.AuthBackoff authBackoff = properties.getAuthBackoff();
+        MultiServerAuthenticator msa = new MultiServerAuthenticator(authBackoff.getMaxChallenges(), authBackoff.getWindow(), authBackoff.getDuration());
+        MultiProxySelector selector = null;
+
+        if (!properties.getServers().isEmpty()) {
+            // CASE 1: explicit proxies configuration
+            LOGGER.info("Configuring proxies from Spring Boot configuration");
+
+            // install proxy selector (and start health checks, host list files watching, candidate rules evaluation and destinations tracking)
+            MultiProxySelector.Builder builder = MultiProxySelector.builder()
+                    .servers(properties.getServers().stream().map(NetworkProxyInstaller::toProxyServer).collect(Collectors.toList()))
+                    .explorationRate(properties.getExplorationRate())
+                    .linearTimeRegex(properties.isLinearTimeRegex())
+                    .compiledRules(properties.isCompiledRules())
+                    .offHeapCache(properties.getOffHeapCacheSize())
+                    .healthCheck(properties.getHealthCheck().getInterval(), properties.getHealthCheck().getTimeout())
+                    .watchHostLists(true);
+            NetworkProxyProperties.Candidate candidate = properties.getCandidate();
+            if (!candidate.getServers().isEmpty()) {
+                builder.candidate(candidate.getServers().stream().map(NetworkProxyInstaller::toProxyServer).collect(Collectors.toList()), candidate.getSampleRate(), candidate.getQueueCapacity());
+            }
+            NetworkProxyProperties.HeavyHitters heavyHitters = properties.getHeavyHitters();
+            if (heavyHitters.getTop() > 0) {
+                builder.heavyHitters(heavyHitters.getTop(), heavyHitters.getWindow());
+            }
+            selector = builder.build();
+            for (NetworkProxyProperties.ProxyServerConfig cfg : properties.getServers()) {
+                if (cfg.isRemoteDns()) {
+                    LOGGER.warn("Proxy {}:{} has remote-dns: it only applies to sockets created by MultiProxySelector.socketFactory(protocol), which is not used by default "
+                            + "(HttpURLConnection resolves hostnames locally)", cfg.getHost(), cfg.getPort());
+                }
+            }
+            try {
+                // set password authentication for every proxy that need one
+                for (NetworkProxyProperties.ProxyServerConfig cfg : properties.getServers()) {
+                    if (cfg.getPasswordFile() != null) {
+                        addFromFiles(msa, cfg, cfg.getHost() + ":" + cfg.getPort());
+                        for (String alternate : cfg.getAlternates()) {
+                            addFromFiles(msa, cfg, alternate);
+                        }
+                    } else if (cfg.getUsername() != null && cfg.getPassword() != null) {
+                        msa.add(cfg.getHost() + ":" + cfg.getPort(), cfg.getUsername(), cfg.getPassword());
+                        for (String alternate : cfg.getAlternates()) {
+                            msa.add(alternate, cfg.getUsername(), cfg.getPassword());
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                closeQuietly(selector);
+                closeQuietly(msa);
+                throw e;
+            }
+            ProxySelector.setDefault(selector);
+        } else {
+            for (String protocol : PROTOCOLS) {
+                ProxySettingsFromEnv proxySettings = ProxySettingsFromEnv.read(protocol);
+                if (proxySettings != null) {
+                    // CASE 2: auto-conf from ENV
+                    LOGGER.info("Configuring proxy for {} from env '{}': {}", protocol, proxySettings.getEnvName(), proxySettings);
+
+                    // set password authent if specified
+                    if (proxySettings.getUsername() != null && proxySettings.getPassword() != null) {
+                        msa.add(proxySettings.getHost() + ":" + proxySettings.getPort(), proxySettings.getUsername(), proxySettings.getPassword());
+                    }
+
+                    // set proxy properties
+                    System.setProperty(protocol + ".proxyHost", proxySettings.getHost());
+                    System.setProperty(protocol + ".proxyPort", String.valueOf(proxySettings.getPort()));
+                    if (proxySettings.getNoProxyHosts() != null && proxySettings.getNoProxyHosts().length > 0) {
+                        System.setProperty(protocol + ".nonProxyHosts", String.join("|", proxySettings.getNoProxyHosts()));
+                    }
+                } else {
+                    // CASE 3: auto-conf from Java properties (support http.proxyUser & http.proxyPassword)
+                    String host = System.getProperty(protocol + ".proxyHost");
+                    String port = System.getProperty(protocol + ".proxyPort");
+                    String username = System.getProperty(protocol + ".proxyUser");
+                    String password = System.getProperty(protocol + ".proxyPassword");
+                    if (host != null && port != null && username != null && password != null) {
+                        LOGGER.info("Configuring proxy authent for {} from Java properties '{}' & '{}'", protocol, protocol + ".proxyUser", protocol + ".proxyPassword");
+                        msa.add(host + ":" + port, username, password);
+                    } else {
+                        // no proxy configuration
+                        LOGGER.info("No proxy configuration found for {}", protocol);
+                    }
+                }
+            }
+        }
+
+        // install default authenticator (if not empty)
+        if (msa.size() > 0) {
+            // see: https://www.oracle.com/technetwork/java/javase/8u111-relnotes-3124969.html
+            System.setProperty("jdk.http.auth.tunneling.disabledSchemes", "");
+            Authenticator.setDefault(msa);
+        }
+        return new NetworkProxyInstaller(fingerprint(properties), selector, msa);
+    }
+
+    /**
+     * Stops the selector health checks and the files watching (the configuration stays installed)
+     */
+    @Override
+    public void close() {
+        closeQuietly(selector);
+        closeQuietly(authenticator);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            LOGGER.warn("Failed closing {}", closeable, e);
+        }
+    }
+
+    private static void addFromFiles(MultiServerAuthenticator msa, NetworkProxyProperties.ProxyServerConfig cfg, String host) {
+        try {
+            msa.addFromFiles(host, cfg.getUsername(), cfg.getUsernameFile() == null ? null : Paths.get(cfg.getUsernameFile()), Paths.get(cfg.getPasswordFile()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Proxy credentials files for <" + host + "> can't be read", e);
+        }
+    }
+
+    private static ProxyServer toProxyServer(NetworkProxyProperties.ProxyServerConfig cfg) {
+        return ProxyServer.builder(cfg.getHost(), cfg.getPort())
+                .type(cfg.getType() == NetworkProxyProperties.ProxyServerConfig.Type.http ? Proxy.Type.HTTP : Proxy.Type.SOCKS)
+                .name(cfg.getName())
+                .alternates(cfg.getAlternates())
+                .forHosts(cfg.getForHosts())
+                .notForHosts(cfg.getNotForHosts())
+                .forHostsFiles(cfg.getForHostsFiles())
+                .notForHostsFiles(cfg.getNotForHostsFiles())
+                .forProtocols(cfg.getForProtocols())
+                .fallback(cfg.getFallback())
+                .maxConcurrentConnections(cfg.getMaxConcurrentConnections() == null ? 0 : cfg.getMaxConcurrentConnections())
+                .remoteDns(cfg.isRemoteDns())
+                .build();
+    }
+}
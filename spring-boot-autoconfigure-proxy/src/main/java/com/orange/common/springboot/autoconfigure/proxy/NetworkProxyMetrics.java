@@ -0,0 +1,174 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds the proxy authentication counters to a Micrometer {@link MeterRegistry} (one set of meters per proxy, tagged
+ * with {@code proxy=host:port})
+ * <ul>
+ * <li>{@code network.proxy.auth.challenges}: authentication challenges,</li>
+ * <li>{@code network.proxy.auth.backoffs}: number of times credentials were withheld after too many challenges,</li>
+ * <li>{@code network.proxy.auth.withheld}: challenges answered without credentials,</li>
+ * <li>{@code network.proxy.auth.backoff.active}: {@code 1} while credentials are withheld.</li>
+ * </ul>
+ * When heavy-hitter destinations are tracked (see {@link MultiProxySelector#getTopDestinations()}), also binds
+ * {@code network.proxy.destinations.rate}: selections per second of the top destinations of the last window, tagged
+ * with {@code proxy} and {@code rank} ({@code 1} for the most selected host), refreshed every window. With
+ * {@code hostTag}, destinations are tagged with {@code proxy} and {@code host} instead: every host ever in the top
+ * then makes a time series of its own (removed from the registry when the host leaves the top, but usually retained
+ * by the monitoring backend), which may be many with varying destinations.
+ * <p>
+ * When a candidate rule set is evaluated (see {@link MultiProxySelector#getCandidateEvaluation()}), also binds
+ * <ul>
+ * <li>{@code network.proxy.candidate.samples}: sampled selections, tagged with {@code outcome} ({@code same} or
+ * {@code different} routing, or {@code dropped} when the evaluation queue was full),</li>
+ * <li>{@code network.proxy.candidate.evaluation.time}: mean time to evaluate a selection, tagged with {@code rules}
+ * ({@code active} or {@code candidate}).</li>
+ * </ul>
+ */
+public class NetworkProxyMetrics implements MeterBinder, Closeable {
+    private final MultiServerAuthenticator authenticator;
+    private final MultiProxySelector selector;
+    private final Duration refreshInterval;
+    private final boolean hostTag;
+    private final List<MultiGauge> destinationRates = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService refresher;
+
+    public NetworkProxyMetrics(MultiServerAuthenticator authenticator) {
+        this(authenticator, null, null);
+    }
+
+    /**
+     * @param selector        proxy selector whose top destinations and candidate rules evaluation are bound (may be
+     *                        {@code null})
+     * @param refreshInterval top destinations refresh interval (typically the heavy hitters window)
+     */
+    public NetworkProxyMetrics(MultiServerAuthenticator authenticator, MultiProxySelector selector, Duration refreshInterval) {
+        this(authenticator, selector, refreshInterval, false);
+    }
+
+    /**
+     * @param selector        proxy selector whose top destinations and candidate rules evaluation are bound (may be
+     *                        {@code null})
+     * @param refreshInterval top destinations refresh interval (typically the heavy hitters window)
+     * @param hostTag         whether top destinations are tagged with their host (unbounded) rather than their rank
+     */
+    public NetworkProxyMetrics(MultiServerAuthenticator authenticator, MultiProxySelector selector, Duration refreshInterval, boolean hostTag) {
+        this.authenticator = authenticator;
+        this.selector = selector;
+        this.refreshInterval = refreshInterval;
+        this.hostTag = hostTag;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Map.Entry<String, MultiServerAuthenticator.ChallengeStats> entry : authenticator.getChallengeStats().entrySet()) {
+            String proxy = entry.getKey();
+            MultiServerAuthenticator.ChallengeStats stats = entry.getValue();
+            FunctionCounter.builder("network.proxy.auth.challenges", stats, MultiServerAuthenticator.ChallengeStats::getChallenges)
+                    .description("Proxy authentication challenges")
+                    .tag("proxy", proxy)
+                    .register(registry);
+            FunctionCounter.builder("network.proxy.auth.backoffs", stats, MultiServerAuthenticator.ChallengeStats::getBackoffs)
+                    .description("Proxy credentials withheld after too many challenges")
+                    .tag("proxy", proxy)
+                    .register(registry);
+            FunctionCounter.builder("network.proxy.auth.withheld", stats, MultiServerAuthenticator.ChallengeStats::getWithheld)
+                    .description("Proxy authentication challenges answered without credentials")
+                    .tag("proxy", proxy)
+                    .register(registry);
+            Gauge.builder("network.proxy.auth.backoff.active", stats, s -> s.isBackingOff() ? 1 : 0)
+                    .description("Whether proxy credentials are currently withheld")
+                    .tag("proxy", proxy)
+                    .register(registry);
+        }
+        if (selector != null && selector.getTopDestinations() != null) {
+            bindTopDestinations(registry);
+        }
+        if (selector != null && selector.getCandidateEvaluation() != null) {
+            bindCandidateEvaluation(registry, selector.getCandidateEvaluation());
+        }
+    }
+
+    private static void bindCandidateEvaluation(MeterRegistry registry, CandidateRulesEvaluation evaluation) {
+        FunctionCounter.builder("network.proxy.candidate.samples", evaluation, CandidateRulesEvaluation::getAgreements)
+                .description("Sampled selections routed the same way by the candidate rules")
+                .tag("outcome", "same")
+                .register(registry);
+        FunctionCounter.builder("network.proxy.candidate.samples", evaluation, CandidateRulesEvaluation::getDifferences)
+                .description("Sampled selections routed differently by the candidate rules")
+                .tag("outcome", "different")
+                .register(registry);
+        FunctionCounter.builder("network.proxy.candidate.samples", evaluation, CandidateRulesEvaluation::getDropped)
+                .description("Sampled selections dropped because the evaluation queue was full")
+                .tag("outcome", "dropped")
+                .register(registry);
+        TimeGauge.builder("network.proxy.candidate.evaluation.time", evaluation, TimeUnit.NANOSECONDS, CandidateRulesEvaluation::getActiveMeanNanos)
+                .description("Mean time to match a selection against the rules")
+                .tag("rules", "active")
+                .register(registry);
+        TimeGauge.builder("network.proxy.candidate.evaluation.time", evaluation, TimeUnit.NANOSECONDS, CandidateRulesEvaluation::getCandidateMeanNanos)
+                .description("Mean time to match a selection against the rules")
+                .tag("rules", "candidate")
+                .register(registry);
+    }
+
+    private synchronized void bindTopDestinations(MeterRegistry registry) {
+        MultiGauge rates = MultiGauge.builder("network.proxy.destinations.rate")
+                .description("Selections per second of the most selected destinations")
+                .baseUnit("selections")
+                .register(registry);
+        destinationRates.add(rates);
+        refreshTopDestinations(rates);
+        if (refresher == null) {
+            // a single task refreshes the gauges of every registry bound to
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "proxy-destinations-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = refreshInterval != null ? refreshInterval.toMillis() : TimeUnit.MINUTES.toMillis(1);
+            refresher.scheduleWithFixedDelay(() -> destinationRates.forEach(this::refreshTopDestinations), interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refreshTopDestinations(MultiGauge rates) {
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        for (Map.Entry<Proxy, List<DestinationSketch.Destination>> entry : selector.getTopDestinations().entrySet()) {
+            InetSocketAddress address = (InetSocketAddress) entry.getKey().address();
+            String proxy = address.getHostString() + ":" + address.getPort();
+            List<DestinationSketch.Destination> destinations = entry.getValue();
+            for (int i = 0; i < destinations.size(); i++) {
+                DestinationSketch.Destination destination = destinations.get(i);
+                Tags tags = hostTag ? Tags.of("proxy", proxy, "host", destination.getHost()) : Tags.of("proxy", proxy, "rank", String.valueOf(i + 1));
+                rows.add(MultiGauge.Row.of(tags, destination.getRate()));
+            }
+        }
+        rates.register(rows, true);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
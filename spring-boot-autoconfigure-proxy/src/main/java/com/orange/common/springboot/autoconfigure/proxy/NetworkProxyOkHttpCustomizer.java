@@ -0,0 +1,165 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import okhttp3.Call;
+import okhttp3.Challenge;
+import okhttp3.Connection;
+import okhttp3.Credentials;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.Route;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.SocketAddress;
+
+/**
+ * Configures {@link OkHttpClient}s to use the network proxy configuration
+ * <p>
+ * OkHttp doesn't use the default {@link java.net.Authenticator}, and only uses the default
+ * {@link java.net.ProxySelector} if none is set on the builder. This customizer sets:
+ * <ul>
+ * <li>the {@link MultiProxySelector} (if proxies are configured with Spring Boot configuration): the same instance for
+ * all clients, returning the same {@link Proxy} instances, so that pooled connections are reused for each proxy
+ * route,</li>
+ * <li>a proxy authenticator backed by the {@link MultiServerAuthenticator} credentials, authenticating preemptively
+ * (for both tunnels and plain HTTP requests, saving a {@code 407} round trip per connection),</li>
+ * <li>when some proxies have {@code max-concurrent-connections}, an {@link EventListener} reporting in-flight and
+ * successful connections to the selector (replacing any previously set event listener).</li>
+ * </ul>
+ * Usage:
+ * <pre>
+ * OkHttpClient client = customizer.customize(new OkHttpClient.Builder()).build();
+ * </pre>
+ */
+public class NetworkProxyOkHttpCustomizer {
+    private static final String PROXY_AUTHORIZATION = "Proxy-Authorization";
+    private static final String PREEMPTIVE_SCHEME = "OkHttp-Preemptive";
+
+    private final MultiProxySelector selector;
+    private final MultiServerAuthenticator authenticator;
+    private final boolean trackConnections;
+
+    /**
+     * @param selector         the proxy selector ({@code null} to keep the client's one)
+     * @param authenticator    the proxy credentials
+     * @param trackConnections whether in-flight connections shall be reported to the selector
+     */
+    public NetworkProxyOkHttpCustomizer(MultiProxySelector selector, MultiServerAuthenticator authenticator, boolean trackConnections) {
+        this.selector = selector;
+        this.authenticator = authenticator;
+        this.trackConnections = trackConnections && selector != null;
+    }
+
+    public OkHttpClient.Builder customize(OkHttpClient.Builder builder) {
+        if (selector != null) {
+            builder.proxySelector(selector);
+        }
+        builder.proxyAuthenticator(this::authenticate);
+        builder.addNetworkInterceptor(this::authorizePlainHttp);
+        if (trackConnections) {
+            builder.eventListenerFactory(call -> new LeaseListener(selector));
+        }
+        return builder;
+    }
+
+    /**
+     * Answers {@code 407} challenges, and preemptive authentication requests for tunnels
+     */
+    private Request authenticate(Route route, Response response) {
+        if (route == null) {
+            return null;
+        }
+        String host = hostAndPort(route.proxy());
+        if (host == null) {
+            return null;
+        }
+        boolean preemptive = false;
+        for (Challenge challenge : response.challenges()) {
+            if (PREEMPTIVE_SCHEME.equalsIgnoreCase(challenge.scheme())) {
+                preemptive = true;
+            }
+        }
+        PasswordAuthentication credentials = preemptive ? authenticator.getCredentials(host) : authenticator.authenticate(host);
+        if (credentials == null) {
+            return null;
+        }
+        String authorization = Credentials.basic(credentials.getUserName(), new String(credentials.getPassword()));
+        // the request actually sent (including the header set by network interceptors)
+        Request sent = response.networkResponse() != null ? response.networkResponse().request() : response.request();
+        if (!preemptive && authorization.equals(sent.header(PROXY_AUTHORIZATION))) {
+            // these credentials were just rejected: give up
+            return null;
+        }
+        return response.request().newBuilder().header(PROXY_AUTHORIZATION, authorization).build();
+    }
+
+    /**
+     * Authenticates plain HTTP requests sent to a proxy preemptively (OkHttp only does it for tunnels)
+     */
+    private Response authorizePlainHttp(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        Connection connection = chain.connection();
+        if (connection == null || request.isHttps() || request.header(PROXY_AUTHORIZATION) != null) {
+            return chain.proceed(request);
+        }
+        String host = hostAndPort(connection.route().proxy());
+        PasswordAuthentication credentials = host == null ? null : authenticator.getCredentials(host);
+        if (credentials == null) {
+            return chain.proceed(request);
+        }
+        return chain.proceed(request.newBuilder()
+                .header(PROXY_AUTHORIZATION, Credentials.basic(credentials.getUserName(), new String(credentials.getPassword())))
+                .build());
+    }
+
+    /**
+     * Returns the {@code host:port} of an HTTP proxy, as configured
+     */
+    private static String hostAndPort(Proxy proxy) {
+        SocketAddress address = proxy.address();
+        if (proxy.type() != Proxy.Type.HTTP || !(address instanceof InetSocketAddress)) {
+            return null;
+        }
+        InetSocketAddress inetAddress = (InetSocketAddress) address;
+        return inetAddress.getHostString() + ":" + inetAddress.getPort();
+    }
+
+    /**
+     * Holds a {@link MultiProxySelector.Lease} while a call uses a connection through a proxy, and reports successful
+     * connections (OkHttp reports failed ones to the proxy selector itself)
+     */
+    private static class LeaseListener extends EventListener {
+        private final MultiProxySelector selector;
+        private MultiProxySelector.Lease lease;
+
+        private LeaseListener(MultiProxySelector selector) {
+            this.selector = selector;
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            if (proxy.type() != Proxy.Type.DIRECT) {
+                selector.connectSucceeded(proxy);
+            }
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            lease = selector.acquire(connection.route().proxy());
+        }
+
+        @Override
+        public void connectionReleased(Call call, Connection connection) {
+            if (lease != null) {
+                lease.close();
+                lease = null;
+            }
+        }
+    }
+}
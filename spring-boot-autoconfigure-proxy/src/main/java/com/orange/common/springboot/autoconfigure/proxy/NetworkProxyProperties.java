@@ -0,0 +1,838 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+@ConfigurationProperties(prefix = "network.proxy")
+@Validated
+public class NetworkProxyProperties implements Validator  {
+    /**
+     * Whether to enable network proxy auto configuration.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Whether to install the network proxy configuration as soon as the environment is prepared, so that connections
+     * made while the application context starts (config server, bootstrap clients...) go through the proxies.
+     * Otherwise it is installed by the auto-configuration. Default: {@code true}.
+     */
+    private boolean installEarly = true;
+
+    /**
+     * Explicit network proxy servers configuration
+     */
+    @Valid
+    private List<ProxyServerConfig> servers = Collections.emptyList();
+
+    /**
+     * Probability (between 0 and 1) of trying a random proxy first, when a server has alternates. Default: {@code 0.05}.
+     */
+    private double explorationRate = MultiProxySelector.DEFAULT_EXPLORATION_RATE;
+
+    /**
+     * Whether {@code /regex/} and wildcard host matchers shall be evaluated with a linear-time engine, bounding the
+     * cost of a selection whatever the hostname. Patterns it can't support (backreferences, lookarounds...) are
+     * rejected. Default: {@code false}.
+     */
+    private boolean linearTimeRegex;
+
+    /**
+     * Whether the servers rules shall be compiled into a single decision structure, evaluating all the host and domain
+     * matchers in one pass over the hostname. Only speeds up the first selection of every host (selections are
+     * cached). Default: {@code false}.
+     */
+    private boolean compiledRules;
+
+    /**
+     * Max number of hosts in an off-heap selection cache (evicting hosts not recently selected), replacing the
+     * default unbounded on-heap cache. For very high host cardinalities (at most {@code 805306368}). Default: {@code 0}
+     * (disabled).
+     */
+    @PositiveOrZero
+    @Max(805_306_368)
+    private int offHeapCacheSize;
+
+    /**
+     * Candidate rule set, evaluated against the servers rules on a sample of selections
+     */
+    @Valid
+    private Candidate candidate = new Candidate();
+
+    /**
+     * Connections warm-up at startup
+     */
+    @Valid
+    private WarmUp warmUp = new WarmUp();
+
+    /**
+     * Heavy-hitter destinations tracking (most selected hosts per proxy)
+     */
+    @Valid
+    private HeavyHitters heavyHitters = new HeavyHitters();
+
+    /**
+     * Proxy servers health checks configuration
+     */
+    private HealthCheck healthCheck = new HealthCheck();
+
+    /**
+     * Proxy authentication backoff configuration (when credentials are repeatedly rejected)
+     */
+    private AuthBackoff authBackoff = new AuthBackoff();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isInstallEarly() {
+        return installEarly;
+    }
+
+    public void setInstallEarly(boolean installEarly) {
+        this.installEarly = installEarly;
+    }
+
+    public List<ProxyServerConfig> getServers() {
+        return servers;
+    }
+
+    public void setServers(List<ProxyServerConfig> servers) {
+        this.servers = servers;
+    }
+
+    public double getExplorationRate() {
+        return explorationRate;
+    }
+
+    public void setExplorationRate(double explorationRate) {
+        this.explorationRate = explorationRate;
+    }
+
+    public boolean isLinearTimeRegex() {
+        return linearTimeRegex;
+    }
+
+    public void setLinearTimeRegex(boolean linearTimeRegex) {
+        this.linearTimeRegex = linearTimeRegex;
+    }
+
+    public boolean isCompiledRules() {
+        return compiledRules;
+    }
+
+    public void setCompiledRules(boolean compiledRules) {
+        this.compiledRules = compiledRules;
+    }
+
+    public int getOffHeapCacheSize() {
+        return offHeapCacheSize;
+    }
+
+    public void setOffHeapCacheSize(int offHeapCacheSize) {
+        this.offHeapCacheSize = offHeapCacheSize;
+    }
+
+    public Candidate getCandidate() {
+        return candidate;
+    }
+
+    public void setCandidate(Candidate candidate) {
+        this.candidate = candidate;
+    }
+
+    public WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(WarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public HeavyHitters getHeavyHitters() {
+        return heavyHitters;
+    }
+
+    public void setHeavyHitters(HeavyHitters heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
+
+    public HealthCheck getHealthCheck() {
+        return healthCheck;
+    }
+
+    public void setHealthCheck(HealthCheck healthCheck) {
+        this.healthCheck = healthCheck;
+    }
+
+    public AuthBackoff getAuthBackoff() {
+        return authBackoff;
+    }
+
+    public void setAuthBackoff(AuthBackoff authBackoff) {
+        this.authBackoff = authBackoff;
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkProxyProperties{" +
+                "enabled=" + enabled +
+                ", installEarly=" + installEarly +
+                ", servers=" + servers +
+                ", explorationRate=" + explorationRate +
+                ", linearTimeRegex=" + linearTimeRegex +
+                ", compiledRules=" + compiledRules +
+                ", offHeapCacheSize=" + offHeapCacheSize +
+                ", candidate=" + candidate +
+                ", warmUp=" + warmUp +
+                ", heavyHitters=" + heavyHitters +
+                ", healthCheck=" + healthCheck +
+                ", authBackoff=" + authBackoff +
+                '}';
+    }
+
+    public static class Candidate {
+        /**
+         * Candidate proxy servers (same settings as {@code servers}, credentials excepted): never used for
+         * connections, only compared with the servers rules. Default: none (disabled).
+         */
+        @Valid
+        private List<ProxyServerConfig> servers = Collections.emptyList();
+        /**
+         * Probability (between 0 and 1) of evaluating a selection against both rule sets. Default: {@code 0.01}.
+         */
+        private double sampleRate = 0.01;
+        /**
+         * Max number of sampled selections waiting for evaluation (extra ones are dropped). Default: {@code 1000}.
+         */
+        @Positive
+        private int queueCapacity = 1000;
+
+        public List<ProxyServerConfig> getServers() {
+            return servers;
+        }
+
+        public void setServers(List<ProxyServerConfig> servers) {
+            this.servers = servers;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        @Override
+        public String toString() {
+            return "Candidate{" +
+                    "servers=" + servers +
+                    ", sampleRate=" + sampleRate +
+                    ", queueCapacity=" + queueCapacity +
+                    '}';
+        }
+    }
+
+    public static class WarmUp {
+        /**
+         * URLs to warm up connections to, through every proxy selected for them, before the application is started
+         * (typically the services the application calls). Default: none (disabled).
+         */
+        private List<URI> urls = Collections.emptyList();
+        /**
+         * Number of connections to open per URL and proxy (the JDK keeps at most {@code http.maxConnections} idle
+         * connections per destination). Default: {@code 1}.
+         */
+        @Positive
+        private int connections = 1;
+        /**
+         * Connect and read timeout of each warm-up request. Default: {@code 5s}.
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+
+        public List<URI> getUrls() {
+            return urls;
+        }
+
+        public void setUrls(List<URI> urls) {
+            this.urls = urls;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public void setConnections(int connections) {
+            this.connections = connections;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public String toString() {
+            return "WarmUp{" +
+                    "urls=" + urls +
+                    ", connections=" + connections +
+                    ", timeout=" + timeout +
+                    '}';
+        }
+    }
+
+    public static class HeavyHitters {
+        /**
+         * Number of most selected destination hosts to track per proxy, over each window (exposed as the
+         * {@code network.proxy.destinations.rate} metric). Default: {@code 0} (disabled).
+         */
+        @PositiveOrZero
+        private int top;
+        /**
+         * Duration of the windows selections are counted over. Default: {@code 1m}.
+         */
+        private Duration window = Duration.ofMinutes(1);
+        /**
+         * Whether the {@code network.proxy.destinations.rate} metric is tagged with the destination {@code host}
+         * (one time series per host ever in the top: unbounded with varying destinations) rather than its
+         * {@code rank}. Default: {@code false}.
+         */
+        private boolean hostTag;
+
+        public int getTop() {
+            return top;
+        }
+
+        public void setTop(int top) {
+            this.top = top;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public boolean isHostTag() {
+            return hostTag;
+        }
+
+        public void setHostTag(boolean hostTag) {
+            this.hostTag = hostTag;
+        }
+
+        @Override
+        public String toString() {
+            return "HeavyHitters{" +
+                    "top=" + top +
+                    ", window=" + window +
+                    ", hostTag=" + hostTag +
+                    '}';
+        }
+    }
+
+    public static class HealthCheck {
+        /**
+         * Interval between two TCP probes of every proxy server (at least {@code 1ms}). Default: none (health checks
+         * disabled).
+         */
+        private Duration interval;
+        /**
+         * Probe connect timeout (at least {@code 1ms}). Default: {@code 2s}.
+         */
+        private Duration timeout = Duration.ofSeconds(2);
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public String toString() {
+            return "HealthCheck{" +
+                    "interval=" + interval +
+                    ", timeout=" + timeout +
+                    '}';
+        }
+    }
+
+    public static class AuthBackoff {
+        /**
+         * Max number of authentication challenges from one proxy within {@code window} before its credentials are
+         * withheld ({@code 0} disables backoff). Default: {@code 10}.
+         */
+        private int maxChallenges = MultiServerAuthenticator.DEFAULT_MAX_CHALLENGES;
+        /**
+         * Duration over which authentication challenges are counted. Default: {@code 10s}.
+         */
+        private Duration window = MultiServerAuthenticator.DEFAULT_WINDOW;
+        /**
+         * Duration during which rejected credentials are withheld. Default: {@code 30s}.
+         */
+        private Duration duration = MultiServerAuthenticator.DEFAULT_BACKOFF;
+
+        public int getMaxChallenges() {
+            return maxChallenges;
+        }
+
+        public void setMaxChallenges(int maxChallenges) {
+            this.maxChallenges = maxChallenges;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public void setDuration(Duration duration) {
+            this.duration = duration;
+        }
+
+        @Override
+        public String toString() {
+            return "AuthBackoff{" +
+                    "maxChallenges=" + maxChallenges +
+                    ", window=" + window +
+                    ", duration=" + duration +
+                    '}';
+        }
+    }
+
+    @Validated
+    public static class ProxyServerConfig {
+        enum Type {
+            http, socks
+        }
+        /**
+         * The proxy type ({@code http} or {@code socks}). Default: {@code http}.
+         */
+        private Type type = Type.http;
+        /**
+         * Optional server name (used to reference it as another server's {@code fallback})
+         */
+        private String name;
+        /**
+         * The proxy host
+         */
+        @NotEmpty
+        private String host;
+        /**
+         * The proxy port
+         */
+        @NotNull
+        private Integer port;
+        /**
+         * Alternate proxy servers ({@code host:port}) sharing this server's type, matchers and credentials.
+         * Candidates are tried in order of expected connect latency.
+         */
+        private List<String> alternates = Collections.emptyList();
+        /**
+         * The proxy username
+         */
+        private String username;
+        /**
+         * The proxy password
+         */
+        private String password;
+        /**
+         * File containing the proxy username (e.g. a mounted secret), reloaded whenever it changes
+         */
+        private String usernameFile;
+        /**
+         * File containing the proxy password (e.g. a mounted secret), reloaded whenever it changes: rotated
+         * credentials are used without restart
+         */
+        private String passwordFile;
+        /**
+         * For hosts matchers
+         */
+        private List<String> forHosts = Collections.emptyList();
+        /**
+         * Not for hosts matchers
+         */
+        private List<String> notForHosts = Collections.emptyList();
+        /**
+         * For hosts list files (one host or domain per line), reloaded whenever they change
+         */
+        private List<String> forHostsFiles = Collections.emptyList();
+        /**
+         * Not for hosts list files (one host or domain per line), reloaded whenever they change
+         */
+        private List<String> notForHostsFiles = Collections.emptyList();
+        /**
+         * Protocols. Default: {@code ["http", "https", "ftp"]}
+         */
+        private List<String> forProtocols = Arrays.asList("http", "https", "ftp");
+        /**
+         * What to do when all this server's proxies are unhealthy: {@code none} (keep on using them), {@code direct}
+         * (direct connection), {@code fail-fast} (immediate connection failure) or the name of another server.
+         * Default: {@code none}.
+         */
+        private String fallback;
+        /**
+         * Max number of concurrent connections through each of this server's proxies (soft limit). Saturated proxies are
+         * tried last; when all are saturated the {@code fallback} applies (if any). Only connections made through OkHttp
+         * or the selector socket factory are counted, not {@code HttpURLConnection} ones. Default: unlimited.
+         */
+        @Positive
+        private Integer maxConcurrentConnections;
+        /**
+         * Whether destination hostnames shall be sent unresolved to this server's proxies, and resolved by them
+         * ({@code socks} type only). Only applies to sockets created by the selector socket factory
+         * ({@code MultiProxySelector.socketFactory(protocol)}), not to {@code HttpURLConnection} (a warning is logged
+         * at startup). Default: {@code false}.
+         */
+        private boolean remoteDns;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public List<String> getNotForHosts() {
+            return notForHosts;
+        }
+
+        public void setNotForHosts(List<String> notForHosts) {
+            this.notForHosts = notForHosts;
+        }
+
+        public Integer getPort() {
+            return port;
+        }
+
+        public void setPort(Integer port) {
+            this.port = port;
+        }
+
+        public List<String> getAlternates() {
+            return alternates;
+        }
+
+        public void setAlternates(List<String> alternates) {
+            this.alternates = alternates;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getUsernameFile() {
+            return usernameFile;
+        }
+
+        public void setUsernameFile(String usernameFile) {
+            this.usernameFile = usernameFile;
+        }
+
+        public String getPasswordFile() {
+            return passwordFile;
+        }
+
+        public void setPasswordFile(String passwordFile) {
+            this.passwordFile = passwordFile;
+        }
+
+        public List<String> getForHosts() {
+            return forHosts;
+        }
+
+        public void setForHosts(List<String> forHosts) {
+            this.forHosts = forHosts;
+        }
+
+        public List<String> getForHostsFiles() {
+            return forHostsFiles;
+        }
+
+        public void setForHostsFiles(List<String> forHostsFiles) {
+            this.forHostsFiles = forHostsFiles;
+        }
+
+        public List<String> getNotForHostsFiles() {
+            return notForHostsFiles;
+        }
+
+        public void setNotForHostsFiles(List<String> notForHostsFiles) {
+            this.notForHostsFiles = notForHostsFiles;
+        }
+
+        public List<String> getForProtocols() {
+            return forProtocols;
+        }
+
+        public void setForProtocols(List<String> forProtocols) {
+            this.forProtocols = forProtocols;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public void setType(Type type) {
+            this.type = type;
+        }
+
+        public String getFallback() {
+            return fallback;
+        }
+
+        public void setFallback(String fallback) {
+            this.fallback = fallback;
+        }
+
+        public Integer getMaxConcurrentConnections() {
+            return maxConcurrentConnections;
+        }
+
+        public void setMaxConcurrentConnections(Integer maxConcurrentConnections) {
+            this.maxConcurrentConnections = maxConcurrentConnections;
+        }
+
+        public boolean isRemoteDns() {
+            return remoteDns;
+        }
+
+        public void setRemoteDns(boolean remoteDns) {
+            this.remoteDns = remoteDns;
+        }
+
+        @Override
+        public String toString() {
+            return "ProxyServerConfig{" +
+                    "type=" + type +
+                    ", name='" + name + '\'' +
+                    ", host='" + host + '\'' +
+                    ", port=" + port +
+                    ", alternates=" + alternates +
+                    ", username='" + username + '\'' +
+                    ", password='" + (password == null ? "(none)" : "***") + '\'' +
+                    ", usernameFile='" + usernameFile + '\'' +
+                    ", passwordFile='" + passwordFile + '\'' +
+                    ", forHosts=" + forHosts +
+                    ", notForHosts=" + notForHosts +
+                    ", forHostsFiles=" + forHostsFiles +
+                    ", notForHostsFiles=" + notForHostsFiles +
+                    ", forProtocols=" + forProtocols +
+                    ", fallback='" + fallback + '\'' +
+                    ", maxConcurrentConnections=" + maxConcurrentConnections +
+                    ", remoteDns=" + remoteDns +
+                    '}';
+        }
+    }
+
+    // ================================================================================================================
+    // === Validator impl
+    // ================================================================================================================
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return clazz.equals(NetworkProxyProperties.class);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors) {
+        NetworkProxyProperties properties = (NetworkProxyProperties) target;
+        validateServers(properties.getServers(), "servers", properties.isLinearTimeRegex(), errors);
+        validateServers(properties.getCandidate().getServers(), "candidate.servers", properties.isLinearTimeRegex(), errors);
+        if (properties.getExplorationRate() < 0 || properties.getExplorationRate() > 1) {
+            errors.rejectValue("explorationRate", "invalid", "must be between 0 and 1");
+        }
+        HealthCheck healthCheck = properties.getHealthCheck();
+        if (healthCheck.getInterval() != null) {
+            if (healthCheck.getInterval().toMillis() <= 0) {
+                errors.rejectValue("healthCheck.interval", "invalid", "must be at least 1ms");
+            }
+            if (healthCheck.getTimeout() == null || healthCheck.getTimeout().toMillis() <= 0) {
+                errors.rejectValue("healthCheck.timeout", "invalid", "must be at least 1ms");
+            }
+        }
+        if (properties.getCandidate().getSampleRate() < 0 || properties.getCandidate().getSampleRate() > 1) {
+            errors.rejectValue("candidate.sampleRate", "invalid", "must be between 0 and 1");
+        }
+        Duration heavyHittersWindow = properties.getHeavyHitters().getWindow();
+        if (heavyHittersWindow == null || heavyHittersWindow.isNegative() || heavyHittersWindow.isZero()) {
+            errors.rejectValue("heavyHitters.window", "invalid", "must be positive");
+        }
+        List<URI> warmUpUrls = properties.getWarmUp().getUrls();
+        for (int i = 0; i < warmUpUrls.size(); i++) {
+            URI uri = warmUpUrls.get(i);
+            if (uri == null || uri.getHost() == null || !("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))) {
+                errors.rejectValue("warmUp.urls[" + i + "]", "invalid", "must be an absolute 'http' or 'https' URL");
+            }
+        }
+    }
+
+    private static void validateServers(List<NetworkProxyProperties.ProxyServerConfig> proxies, String path, boolean linearTimeRegex, Errors errors) {
+        for (int i = 0; i < proxies.size(); i++) {
+            NetworkProxyProperties.ProxyServerConfig cfg = proxies.get(i);
+
+            int countMatchers = (cfg.getForHosts().isEmpty() && cfg.getForHostsFiles().isEmpty() ? 0 : 1) + (cfg.getNotForHosts().isEmpty() && cfg.getNotForHostsFiles().isEmpty() ? 0 : 1);
+            if(countMatchers == 0) {
+                errors.rejectValue(path + "[" + i + "]", "nomatcher", "you must specify either 'forHosts' or 'notForHosts' matchers");
+            } else if(countMatchers > 1) {
+                errors.rejectValue(path + "[" + i + "]", "toomanymatchers", "you can't specify both 'forHosts' and 'notForHosts' matchers");
+            }
+
+            for (int j = 0; j < cfg.getForHostsFiles().size(); j++) {
+                if (!isReadableFile(cfg.getForHostsFiles().get(j))) {
+                    errors.rejectValue(path + "[" + i + "].forHostsFiles[" + j + "]", "invalid", "must be a readable file");
+                }
+            }
+            for (int j = 0; j < cfg.getNotForHostsFiles().size(); j++) {
+                if (!isReadableFile(cfg.getNotForHostsFiles().get(j))) {
+                    errors.rejectValue(path + "[" + i + "].notForHostsFiles[" + j + "]", "invalid", "must be a readable file");
+                }
+            }
+
+            if (cfg.getUsernameFile() != null) {
+                if (cfg.getUsername() != null) {
+                    errors.rejectValue(path + "[" + i + "].usernameFile", "invalid", "you can't specify both 'username' and 'usernameFile'");
+                } else if (!isReadableFile(cfg.getUsernameFile())) {
+                    errors.rejectValue(path + "[" + i + "].usernameFile", "invalid", "must be a readable file");
+                }
+                if (cfg.getPasswordFile() == null) {
+                    errors.rejectValue(path + "[" + i + "].passwordFile", "NotEmpty", "must be specified with 'usernameFile'");
+                }
+            }
+            if (cfg.getPasswordFile() != null) {
+                if (cfg.getPassword() != null) {
+                    errors.rejectValue(path + "[" + i + "].passwordFile", "invalid", "you can't specify both 'password' and 'passwordFile'");
+                } else if (!isReadableFile(cfg.getPasswordFile())) {
+                    errors.rejectValue(path + "[" + i + "].passwordFile", "invalid", "must be a readable file");
+                }
+                if (cfg.getUsername() == null && cfg.getUsernameFile() == null) {
+                    errors.rejectValue(path + "[" + i + "].username", "NotEmpty", "'username' or 'usernameFile' must be specified with 'passwordFile'");
+                }
+            }
+
+            if (ProxyServer.isServerFallback(cfg.getFallback())) {
+                String fallback = cfg.getFallback();
+                if (fallback.equals(cfg.getName())) {
+                    errors.rejectValue(path + "[" + i + "].fallback", "invalid", "a server can't be its own fallback");
+                } else if (proxies.stream().noneMatch(other -> fallback.equals(other.getName()))) {
+                    errors.rejectValue(path + "[" + i + "].fallback", "invalid", "must be 'none', 'direct', 'fail-fast' or another server name");
+                }
+            }
+
+            if (cfg.isRemoteDns() && cfg.getType() != ProxyServerConfig.Type.socks) {
+                errors.rejectValue(path + "[" + i + "].remoteDns", "invalid", "only supported by 'socks' proxies");
+            }
+
+            for (int j = 0; j < cfg.getAlternates().size(); j++) {
+                if (ProxyServer.parseAddress(cfg.getAlternates().get(j)) == null) {
+                    errors.rejectValue(path + "[" + i + "].alternates[" + j + "]", "invalid", "must be formatted as 'host:port'");
+                }
+            }
+
+            // check patterns
+            for(int j=0; j<cfg.getForHosts().size(); j++) {
+                if (cfg.getForHosts().get(j) == null || cfg.getForHosts().get(j).isEmpty()) {
+                    errors.rejectValue(path + "[" + i + "].forHosts[" + j + "]", "NotEmpty", "can't be empty");
+                } else {
+                    try {
+                        HostnameMatcher.parse(cfg.getForHosts().get(j), linearTimeRegex);
+                    } catch (PatternSyntaxException pte) {
+                        errors.rejectValue(path + "[" + i + "].forHosts[" + j + "]", "invalid", "can't be parsed as a valid regexp: " + pte.getDescription());
+                    }
+                }
+            }
+
+            for(int j=0; j<cfg.getNotForHosts().size(); j++) {
+                if (cfg.getNotForHosts().get(j) == null || cfg.getNotForHosts().get(j).isEmpty()) {
+                    errors.rejectValue(path + "[" + i + "].notForHosts["+j+"]", "NotEmpty", "can't be empty");
+                } else {
+                    try {
+                        HostnameMatcher.parse(cfg.getNotForHosts().get(j), linearTimeRegex);
+                    } catch (PatternSyntaxException pte) {
+                        errors.rejectValue(path + "[" + i + "].notForHosts["+j+"]", "invalid", "can't be parsed as a valid regexp: " + pte.getDescription());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isReadableFile(String path) {
+        try {
+            return path != null && Files.isRegularFile(Paths.get(path)) && Files.isReadable(Paths.get(path));
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+}
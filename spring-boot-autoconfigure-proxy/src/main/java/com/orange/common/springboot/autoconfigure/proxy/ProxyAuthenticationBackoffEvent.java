@@ -0,0 +1,41 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when a proxy repeatedly rejects its configured credentials, and these are withheld for a while
+ *
+ * @see MultiServerAuthenticator
+ */
+public class ProxyAuthenticationBackoffEvent extends ApplicationEvent {
+    private static final long serialVersionUID = 1L;
+
+    private final String proxy;
+    // live counters (not serializable), as the event source
+    private final transient MultiServerAuthenticator.ChallengeStats stats;
+
+    public ProxyAuthenticationBackoffEvent(MultiServerAuthenticator source, String proxy, MultiServerAuthenticator.ChallengeStats stats) {
+        super(source);
+        this.proxy = proxy;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns the proxy ({@code host:port}) that rejected the credentials
+     */
+    public String getProxy() {
+        return proxy;
+    }
+
+    public MultiServerAuthenticator.ChallengeStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "ProxyAuthenticationBackoffEvent{" +
+                "proxy='" + proxy + '\'' +
+                ", stats=" + stats +
+                '}';
+    }
+}
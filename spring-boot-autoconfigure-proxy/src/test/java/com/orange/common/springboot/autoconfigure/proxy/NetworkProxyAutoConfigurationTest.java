@@ -145,6 +145,38 @@ public class NetworkProxyAutoConfigurationTest {
                 });
     }
 
+    @Test
+    public void zero_health_check_interval_should_fail() {
+        this.contextRunner.withPropertyValues(
+                "network.proxy.enable=true",
+                "network.proxy.servers.0.host=proxyhost",
+                "network.proxy.servers.0.port=3128",
+                "network.proxy.servers.0.for-hosts.0=*",
+                "network.proxy.health-check.interval=0s"
+        )
+                .run((context) -> {
+                    Throwable failure = context.getStartupFailure();
+                    assertIsBeanCreationException(failure, "networkProxyAutoConfiguration");
+                    assertIsValidationError(failure, "network.proxy", "healthCheck.interval", "invalid");
+                });
+    }
+
+    @Test
+    public void out_of_range_exploration_rate_should_fail() {
+        this.contextRunner.withPropertyValues(
+                "network.proxy.enable=true",
+                "network.proxy.servers.0.host=proxyhost",
+                "network.proxy.servers.0.port=3128",
+                "network.proxy.servers.0.for-hosts.0=*",
+                "network.proxy.exploration-rate=1.5"
+        )
+                .run((context) -> {
+                    Throwable failure = context.getStartupFailure();
+                    assertIsBeanCreationException(failure, "networkProxyAutoConfiguration");
+                    assertIsValidationError(failure, "network.proxy", "explorationRate", "invalid");
+                });
+    }
+
     @Test
     public void two_matchers_should_fail() {
         this.contextRunner.withPropertyValues(
@@ -0,0 +1,123 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationFailedEvent;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NetworkProxyEnvironmentPostProcessorTest {
+    private ProxySelector defaultSelector;
+    private final Map<String, Object> properties = new HashMap<>();
+    private final StandardEnvironment environment = new StandardEnvironment();
+
+    @Before
+    public void setUp() {
+        defaultSelector = ProxySelector.getDefault();
+        properties.put("network.proxy.servers[0].host", "127.0.0.1");
+        properties.put("network.proxy.servers[0].port", "3128");
+        properties.put("network.proxy.servers[0].for-hosts[0]", ".acme.com");
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+    }
+
+    @After
+    public void tearDown() {
+        NetworkProxyInstaller installer = NetworkProxyInstaller.takeEarly(bind());
+        if (installer != null) {
+            installer.close();
+        }
+        ProxySelector.setDefault(defaultSelector);
+    }
+
+    @Test
+    public void proxy_selector_should_be_installed_before_the_context_starts() throws Exception {
+        new NetworkProxyEnvironmentPostProcessor().postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(ProxySelector.getDefault()).isInstanceOf(MultiProxySelector.class);
+        assertThat(ProxySelector.getDefault().select(new URI("https://www.acme.com/")))
+                .containsExactly(new Proxy(Proxy.Type.HTTP, new InetSocketAddress("127.0.0.1", 3128)));
+
+        // handed over once to the auto-configuration
+        NetworkProxyInstaller installer = NetworkProxyInstaller.takeEarly(bind());
+        assertThat(installer).isNotNull();
+        assertThat(installer.getSelector()).isSameAs(ProxySelector.getDefault());
+        assertThat(NetworkProxyInstaller.takeEarly(bind())).isNull();
+        installer.close();
+    }
+
+    @Test
+    public void changed_properties_should_not_be_handed_over() {
+        new NetworkProxyEnvironmentPostProcessor().postProcessEnvironment(environment, new SpringApplication());
+        properties.put("network.proxy.servers[0].port", "8080");
+
+        assertThat(NetworkProxyInstaller.takeEarly(bind())).isNull();
+    }
+
+    @Test
+    public void invalid_properties_should_be_deferred_to_the_auto_configuration() {
+        properties.remove("network.proxy.servers[0].for-hosts[0]");
+        new NetworkProxyEnvironmentPostProcessor().postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(ProxySelector.getDefault()).isSameAs(defaultSelector);
+    }
+
+    @Test
+    public void early_install_can_be_disabled() {
+        properties.put("network.proxy.install-early", "false");
+        new NetworkProxyEnvironmentPostProcessor().postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(ProxySelector.getDefault()).isSameAs(defaultSelector);
+    }
+
+    @Test
+    public void early_install_should_be_skipped_when_the_auto_configuration_is_disabled() {
+        properties.put("network.proxy.enabled", "false");
+        new NetworkProxyEnvironmentPostProcessor().postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(ProxySelector.getDefault()).isSameAs(defaultSelector);
+    }
+
+    @Test
+    public void early_install_should_be_skipped_when_the_auto_configuration_is_excluded() {
+        properties.put("spring.autoconfigure.exclude", "org.acme.FooAutoConfiguration, " + NetworkProxyAutoConfiguration.class.getName());
+        new NetworkProxyEnvironmentPostProcessor().postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(ProxySelector.getDefault()).isSameAs(defaultSelector);
+    }
+
+    @Test
+    public void unclaimed_early_install_should_be_closed_when_the_application_fails() {
+        NetworkProxyEnvironmentPostProcessor postProcessor = new NetworkProxyEnvironmentPostProcessor();
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+        postProcessor.onApplicationEvent(new ApplicationFailedEvent(new SpringApplication(), new String[0], null, new IllegalStateException("boom")));
+
+        assertThat(NetworkProxyInstaller.takeEarly(bind())).isNull();
+    }
+
+    @Test
+    public void unclaimed_early_install_should_be_closed_with_the_context() {
+        NetworkProxyEnvironmentPostProcessor postProcessor = new NetworkProxyEnvironmentPostProcessor();
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+        postProcessor.onApplicationEvent(new ContextClosedEvent(new GenericApplicationContext()));
+
+        assertThat(NetworkProxyInstaller.takeEarly(bind())).isNull();
+    }
+
+    private NetworkProxyProperties bind() {
+        return Binder.get(environment).bind("network.proxy", NetworkProxyProperties.class).get();
+    }
+}
@@ -0,0 +1,90 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NetworkProxyMetricsTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private MultiProxySelector selector;
+    private NetworkProxyMetrics metrics;
+
+    @After
+    public void close() throws IOException {
+        if (metrics != null) {
+            metrics.close();
+        }
+        if (selector != null) {
+            selector.close();
+        }
+    }
+
+    @Test
+    public void candidate_evaluation_should_be_bound_while_running() throws Exception {
+        selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("10.0.0.1", 3128).notForHosts("localhost").build())
+                .candidate(Collections.singletonList(ProxyServer.builder("10.0.0.1", 3128).notForHosts("localhost", ".acme.com").build()), 1, 1000)
+                .build();
+        metrics = new NetworkProxyMetrics(new MultiServerAuthenticator(), selector, null);
+        metrics.bindTo(registry);
+
+        for (int i = 0; i < 10; i++) {
+            selector.select(new URI("https://www.example.com/"));
+            selector.select(new URI("https://www.acme.com/"));
+        }
+        CandidateRulesEvaluation evaluation = selector.getCandidateEvaluation();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (evaluation.getEvaluated() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(registry.get("network.proxy.candidate.samples").tag("outcome", "same").functionCounter().count()).isEqualTo(10);
+        assertThat(registry.get("network.proxy.candidate.samples").tag("outcome", "different").functionCounter().count()).isEqualTo(10);
+        assertThat(registry.get("network.proxy.candidate.samples").tag("outcome", "dropped").functionCounter().count()).isZero();
+        assertThat(registry.get("network.proxy.candidate.evaluation.time").tag("rules", "candidate").timeGauge().value(TimeUnit.NANOSECONDS)).isPositive();
+    }
+
+    @Test
+    public void top_destinations_should_be_tagged_with_their_rank() throws Exception {
+        selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("10.0.0.1", 3128).notForHosts("localhost").build())
+                .heavyHitters(5, Duration.ofHours(1))
+                .build();
+        for (int i = 0; i < 3; i++) {
+            selector.select(new URI("https://api.acme.com/"));
+        }
+        selector.select(new URI("https://www.acme.com/"));
+        metrics = new NetworkProxyMetrics(new MultiServerAuthenticator(), selector, Duration.ofHours(1));
+        SimpleMeterRegistry other = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+        metrics.bindTo(other);
+
+        for (SimpleMeterRegistry bound : Arrays.asList(registry, other)) {
+            assertThat(bound.get("network.proxy.destinations.rate").tags("proxy", "10.0.0.1:3128", "rank", "1").gauge().value()).isPositive();
+            assertThat(bound.get("network.proxy.destinations.rate").tags("proxy", "10.0.0.1:3128", "rank", "2").gauge().value()).isPositive();
+            assertThat(bound.find("network.proxy.destinations.rate").tagKeys("host").gauges()).isEmpty();
+        }
+    }
+
+    @Test
+    public void top_destinations_should_be_tagged_with_their_host_when_enabled() throws Exception {
+        selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder("10.0.0.1", 3128).notForHosts("localhost").build())
+                .heavyHitters(5, Duration.ofHours(1))
+                .build();
+        selector.select(new URI("https://api.acme.com/"));
+        metrics = new NetworkProxyMetrics(new MultiServerAuthenticator(), selector, Duration.ofHours(1), true);
+        metrics.bindTo(registry);
+
+        assertThat(registry.get("network.proxy.destinations.rate").tags("proxy", "10.0.0.1:3128", "host", "api.acme.com").gauge().value()).isPositive();
+    }
+}
@@ -0,0 +1,102 @@
+package com.orange.common.springboot.autoconfigure.proxy;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives an {@link OkHttpClient} through a minimal local HTTP proxy (plain HTTP requests in absolute form)
+ */
+public class NetworkProxyOkHttpCustomizerTest {
+    private static final byte[] BODY = "hello".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer proxy;
+    private String proxyHost;
+    private MultiProxySelector selector;
+    private final MultiServerAuthenticator authenticator = new MultiServerAuthenticator();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger challenges = new AtomicInteger();
+    private final AtomicLong inFlight = new AtomicLong(-1);
+
+    @Before
+    public void startProxy() throws Exception {
+        proxy = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16);
+        proxy.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            inFlight.set(selector.getProxyStats().stream().mapToLong(ProxyStats::getInFlight).sum());
+            String authorization = exchange.getRequestHeaders().getFirst("Proxy-Authorization");
+            if (!"Basic dXNlcjpzZWNyZXQ=".equals(authorization)) {
+                challenges.incrementAndGet();
+                exchange.getResponseHeaders().add("Proxy-Authenticate", "Basic realm=\"proxy\"");
+                exchange.sendResponseHeaders(407, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(BODY);
+            }
+        });
+        proxy.start();
+        proxyHost = proxy.getAddress().getAddress().getHostAddress() + ":" + proxy.getAddress().getPort();
+        selector = MultiProxySelector.builder()
+                .server(ProxyServer.builder(proxy.getAddress().getAddress().getHostAddress(), proxy.getAddress().getPort())
+                        .forHosts("origin.test")
+                        .maxConcurrentConnections(10)
+                        .build())
+                .build();
+    }
+
+    @After
+    public void stopProxy() {
+        proxy.stop(0);
+    }
+
+    @Test
+    public void requests_should_be_authenticated_preemptively() throws Exception {
+        authenticator.add(proxyHost, "user", "secret");
+        OkHttpClient client = new NetworkProxyOkHttpCustomizer(selector, authenticator, true)
+                .customize(new OkHttpClient.Builder())
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            try (Response response = client.newCall(new Request.Builder().url("http://origin.test/hello").build()).execute()) {
+                assertThat(response.code()).isEqualTo(200);
+                assertThat(response.body().string()).isEqualTo("hello");
+            }
+        }
+        assertThat(requests.get()).isEqualTo(3);
+        assertThat(challenges.get()).isZero();
+        // connections are reported to the selector while in use
+        assertThat(inFlight.get()).isEqualTo(1);
+        assertThat(selector.getProxyStats().stream().mapToLong(ProxyStats::getInFlight).sum()).isZero();
+    }
+
+    @Test
+    public void rejected_credentials_should_not_be_retried() throws Exception {
+        authenticator.add(proxyHost, "user", "expired");
+        OkHttpClient client = new NetworkProxyOkHttpCustomizer(selector, authenticator, false)
+                .customize(new OkHttpClient.Builder())
+                .build();
+
+        try (Response response = client.newCall(new Request.Builder().url("http://origin.test/hello").build()).execute()) {
+            assertThat(response.code()).isEqualTo(407);
+        }
+        // preemptive request, then one retry with the same credentials is avoided
+        assertThat(requests.get()).isEqualTo(1);
+        assertThat(inFlight.get()).isZero();
+    }
+}